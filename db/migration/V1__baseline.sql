@@ -0,0 +1,24 @@
+-- Baseline schema: subscription and payment tables as documented in README.md
+
+CREATE TABLE IF NOT EXISTS subscription (
+  id              VARCHAR(100) PRIMARY KEY,
+  service_name    VARCHAR(255) NOT NULL,
+  price           NUMERIC(12,2) NOT NULL,
+  start_date      TIMESTAMP NOT NULL,
+  end_date        TIMESTAMP NULL,
+  status          VARCHAR(32) NOT NULL,
+  type            VARCHAR(64) NOT NULL,       -- FixedSubscription | FlexibleSubscription
+  months_engaged  INTEGER NULL                 -- only for FixedSubscription
+);
+
+CREATE TABLE IF NOT EXISTS payment (
+  id              VARCHAR(100) PRIMARY KEY,
+  subscription_id VARCHAR(100) NOT NULL REFERENCES subscription(id) ON DELETE CASCADE,
+  due_date        TIMESTAMP NOT NULL,
+  payment_date    TIMESTAMP NULL,
+  payment_type    VARCHAR(64) NOT NULL,
+  status          VARCHAR(32) NOT NULL
+);
+
+-- Month/year report totals aggregate on a payment_date range
+CREATE INDEX IF NOT EXISTS idx_payment_payment_date ON payment(payment_date);
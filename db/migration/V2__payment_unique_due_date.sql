@@ -0,0 +1,17 @@
+-- One payment per subscription and due date, so payment generation can use
+-- INSERT ... ON CONFLICT DO NOTHING and safely run concurrently.
+
+-- Remove duplicates left by earlier read-then-write generation:
+-- keep a PAID row if there is one, otherwise the lowest id.
+DELETE FROM payment
+WHERE id IN (
+  SELECT id FROM (
+    SELECT id,
+           ROW_NUMBER() OVER (PARTITION BY subscription_id, due_date
+                              ORDER BY (status = 'PAID') DESC, id) AS rn
+    FROM payment
+  ) ranked
+  WHERE rn > 1
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_payment_subscription_due_date ON payment(subscription_id, due_date);
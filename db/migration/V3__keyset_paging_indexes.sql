@@ -0,0 +1,4 @@
+-- Keyset pagination of the subscription listing seeks on (service_name, id).
+-- Payment pages per subscription seek on (subscription_id, due_date), already covered
+-- by ux_payment_subscription_due_date from V2.
+CREATE INDEX IF NOT EXISTS idx_subscription_service_name_id ON subscription(service_name, id);
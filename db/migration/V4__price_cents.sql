@@ -0,0 +1,14 @@
+-- Store subscription prices as exact minor units (cents) instead of NUMERIC
+-- read into a double, so totals can be summed exactly with long arithmetic.
+ALTER TABLE subscription ADD COLUMN IF NOT EXISTS price_cents BIGINT;
+
+DO $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM information_schema.columns
+             WHERE table_name = 'subscription' AND column_name = 'price') THEN
+    UPDATE subscription SET price_cents = ROUND(price * 100) WHERE price_cents IS NULL;
+    ALTER TABLE subscription DROP COLUMN price;
+    ALTER TABLE subscription ALTER COLUMN price_cents SET NOT NULL;
+    ALTER TABLE subscription ADD CONSTRAINT ck_subscription_price_cents CHECK (price_cents >= 0);
+  END IF;
+END $$;
@@ -0,0 +1,131 @@
+-- Monthly revenue rollup per subscription, maintained by triggers on payment so the
+-- month/year reports read one row per (subscription, month) instead of every payment.
+--   paid_count / paid_amount : payments whose payment_date falls in the month
+--                              (paid_amount = paid_count * the subscription's current price)
+--   unpaid_count             : payments with status <> 'PAID' whose due_date falls in the month
+-- Statement-level triggers with transition tables (PostgreSQL 10+) apply one grouped delta per
+-- statement, so COPY and batched inserts cost one upsert per (subscription, month), not per row.
+
+CREATE TABLE IF NOT EXISTS payment_monthly_rollup (
+  subscription_id VARCHAR(100) NOT NULL REFERENCES subscription(id) ON DELETE CASCADE,
+  year_month      DATE NOT NULL,               -- first day of the month
+  paid_count      BIGINT NOT NULL DEFAULT 0,
+  paid_amount     BIGINT NOT NULL DEFAULT 0,   -- cents
+  unpaid_count    BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (subscription_id, year_month)
+);
+
+CREATE INDEX IF NOT EXISTS idx_payment_monthly_rollup_year_month ON payment_monthly_rollup(year_month);
+
+-- Each payment row contributes +1 (new rows) or -1 (old rows) to its paid bucket (month of
+-- payment_date) and to its unpaid bucket (month of due_date); deltas are grouped and upserted.
+CREATE OR REPLACE FUNCTION payment_rollup_on_insert() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO payment_monthly_rollup AS r (subscription_id, year_month, paid_count, paid_amount, unpaid_count)
+  SELECT d.subscription_id, d.year_month, SUM(d.paid), SUM(d.paid) * s.price_cents, SUM(d.unpaid)
+  FROM (
+    SELECT subscription_id, date_trunc('month', payment_date)::date AS year_month, 1 AS paid, 0 AS unpaid
+      FROM new_rows WHERE payment_date IS NOT NULL
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', due_date)::date, 0, 1
+      FROM new_rows WHERE status <> 'PAID'
+  ) d
+  JOIN subscription s ON s.id = d.subscription_id   -- payments of a subscription being deleted are dropped
+  GROUP BY d.subscription_id, d.year_month, s.price_cents
+  ON CONFLICT (subscription_id, year_month) DO UPDATE
+    SET paid_count   = r.paid_count + EXCLUDED.paid_count,
+        paid_amount  = r.paid_amount + EXCLUDED.paid_amount,
+        unpaid_count = r.unpaid_count + EXCLUDED.unpaid_count;
+  RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payment_rollup_on_delete() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO payment_monthly_rollup AS r (subscription_id, year_month, paid_count, paid_amount, unpaid_count)
+  SELECT d.subscription_id, d.year_month, SUM(d.paid), SUM(d.paid) * s.price_cents, SUM(d.unpaid)
+  FROM (
+    SELECT subscription_id, date_trunc('month', payment_date)::date AS year_month, -1 AS paid, 0 AS unpaid
+      FROM old_rows WHERE payment_date IS NOT NULL
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', due_date)::date, 0, -1
+      FROM old_rows WHERE status <> 'PAID'
+  ) d
+  JOIN subscription s ON s.id = d.subscription_id   -- payments of a subscription being deleted are dropped
+  GROUP BY d.subscription_id, d.year_month, s.price_cents
+  ON CONFLICT (subscription_id, year_month) DO UPDATE
+    SET paid_count   = r.paid_count + EXCLUDED.paid_count,
+        paid_amount  = r.paid_amount + EXCLUDED.paid_amount,
+        unpaid_count = r.unpaid_count + EXCLUDED.unpaid_count;
+  RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payment_rollup_on_update() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO payment_monthly_rollup AS r (subscription_id, year_month, paid_count, paid_amount, unpaid_count)
+  SELECT d.subscription_id, d.year_month, SUM(d.paid), SUM(d.paid) * s.price_cents, SUM(d.unpaid)
+  FROM (
+    SELECT subscription_id, date_trunc('month', payment_date)::date AS year_month, -1 AS paid, 0 AS unpaid
+      FROM old_rows WHERE payment_date IS NOT NULL
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', due_date)::date, 0, -1
+      FROM old_rows WHERE status <> 'PAID'
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', payment_date)::date, 1, 0
+      FROM new_rows WHERE payment_date IS NOT NULL
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', due_date)::date, 0, 1
+      FROM new_rows WHERE status <> 'PAID'
+  ) d
+  JOIN subscription s ON s.id = d.subscription_id   -- payments of a subscription being deleted are dropped
+  GROUP BY d.subscription_id, d.year_month, s.price_cents
+  ON CONFLICT (subscription_id, year_month) DO UPDATE
+    SET paid_count   = r.paid_count + EXCLUDED.paid_count,
+        paid_amount  = r.paid_amount + EXCLUDED.paid_amount,
+        unpaid_count = r.unpaid_count + EXCLUDED.unpaid_count;
+  RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_insert ON payment;
+CREATE TRIGGER trg_payment_rollup_insert AFTER INSERT ON payment
+  REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION payment_rollup_on_insert();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_delete ON payment;
+CREATE TRIGGER trg_payment_rollup_delete AFTER DELETE ON payment
+  REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION payment_rollup_on_delete();
+
+DROP TRIGGER IF EXISTS trg_payment_rollup_update ON payment;
+CREATE TRIGGER trg_payment_rollup_update AFTER UPDATE ON payment
+  REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION payment_rollup_on_update();
+
+-- paid_amount follows the current price, like the reports did when they joined subscription
+CREATE OR REPLACE FUNCTION payment_rollup_on_price_change() RETURNS trigger AS $$
+BEGIN
+  UPDATE payment_monthly_rollup SET paid_amount = paid_count * NEW.price_cents WHERE subscription_id = NEW.id;
+  RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_subscription_rollup_price ON subscription;
+CREATE TRIGGER trg_subscription_rollup_price AFTER UPDATE OF price_cents ON subscription
+  FOR EACH ROW WHEN (OLD.price_cents IS DISTINCT FROM NEW.price_cents)
+  EXECUTE FUNCTION payment_rollup_on_price_change();
+
+-- Full recomputation from the payment table; also used by the application's rebuild command.
+-- Writers are blocked while it runs so no delta is lost between the delete and the insert.
+CREATE OR REPLACE FUNCTION rebuild_payment_monthly_rollup() RETURNS void AS $$
+BEGIN
+  LOCK TABLE payment IN SHARE MODE;
+  DELETE FROM payment_monthly_rollup;
+  INSERT INTO payment_monthly_rollup (subscription_id, year_month, paid_count, paid_amount, unpaid_count)
+  SELECT d.subscription_id, d.year_month, SUM(d.paid), SUM(d.paid) * s.price_cents, SUM(d.unpaid)
+  FROM (
+    SELECT subscription_id, date_trunc('month', payment_date)::date AS year_month, 1 AS paid, 0 AS unpaid
+      FROM payment WHERE payment_date IS NOT NULL
+    UNION ALL
+    SELECT subscription_id, date_trunc('month', due_date)::date, 0, 1
+      FROM payment WHERE status <> 'PAID'
+  ) d
+  JOIN subscription s ON s.id = d.subscription_id
+  GROUP BY d.subscription_id, d.year_month, s.price_cents;
+END $$ LANGUAGE plpgsql;
+
+SELECT rebuild_payment_monthly_rollup();
@@ -0,0 +1,3 @@
+-- The overdue sweep selects UNPAID payments past due_date and the overdue listing pages
+-- through OVERDUE payments by due_date; both are range reads on this index.
+CREATE INDEX IF NOT EXISTS idx_payment_status_due_date ON payment(status, due_date);
@@ -0,0 +1,7 @@
+-- Remaining indexes for the payment queries:
+-- - exports by due date range and the full listings page through (due_date, id)
+-- - findLastPayments orders by payment_date DESC NULLS LAST; an index in that order also serves
+--   the payment_date range sums, so it replaces the plain payment_date index from V1
+CREATE INDEX IF NOT EXISTS idx_payment_due_date_id ON payment(due_date, id);
+CREATE INDEX IF NOT EXISTS idx_payment_payment_date_desc ON payment(payment_date DESC NULLS LAST);
+DROP INDEX IF EXISTS idx_payment_payment_date;
@@ -0,0 +1,3 @@
+-- Per-subscription payment counts (paid / unpaid totals) read only status;
+-- with it in the index they are answered by an index-only scan.
+CREATE INDEX IF NOT EXISTS idx_payment_subscription_status ON payment(subscription_id, status);
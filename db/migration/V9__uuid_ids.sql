@@ -0,0 +1,32 @@
+-- Ids become native uuid (16 bytes, compared as binary) instead of VARCHAR(100) text.
+-- New ids are time-ordered UUIDv7 (util.UuidV7IdGenerator), so inserts append to the right edge
+-- of the primary key and subscription_id indexes instead of splitting random pages.
+-- The application binds ids as strings; the JDBC URL sets stringtype=unspecified so the server
+-- reads them as uuid.
+--
+-- Existing UUID text converts as is. Ids that are not UUIDs (entered by hand) are mapped to
+-- md5-based UUIDs by the same function in every table, so references stay intact.
+
+CREATE FUNCTION pg_temp.id_to_uuid(id text) RETURNS uuid AS $$
+  SELECT CASE WHEN id ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$'
+              THEN id::uuid
+              ELSE md5(id)::uuid
+         END
+$$ LANGUAGE sql IMMUTABLE;
+
+-- foreign keys are dropped while both sides change type, then restored
+ALTER TABLE payment DROP CONSTRAINT IF EXISTS payment_subscription_id_fkey;
+ALTER TABLE payment_monthly_rollup DROP CONSTRAINT IF EXISTS payment_monthly_rollup_subscription_id_fkey;
+
+ALTER TABLE subscription ALTER COLUMN id TYPE uuid USING pg_temp.id_to_uuid(id);
+ALTER TABLE payment
+  ALTER COLUMN id TYPE uuid USING pg_temp.id_to_uuid(id),
+  ALTER COLUMN subscription_id TYPE uuid USING pg_temp.id_to_uuid(subscription_id);
+ALTER TABLE payment_monthly_rollup ALTER COLUMN subscription_id TYPE uuid USING pg_temp.id_to_uuid(subscription_id);
+
+ALTER TABLE payment ADD CONSTRAINT payment_subscription_id_fkey
+  FOREIGN KEY (subscription_id) REFERENCES subscription(id) ON DELETE CASCADE;
+ALTER TABLE payment_monthly_rollup ADD CONSTRAINT payment_monthly_rollup_subscription_id_fkey
+  FOREIGN KEY (subscription_id) REFERENCES subscription(id) ON DELETE CASCADE;
+
+DROP FUNCTION pg_temp.id_to_uuid(text);
@@ -0,0 +1,304 @@
+package UI;
+
+
+import entity.Pstatus;
+import serveses.ExportService;
+import serveses.ImportService;
+import serveses.OverdueService;
+import serveses.PaymentService;
+import serveses.ServiceFactory;
+import serveses.SubscriptionService;
+import util.DateUtils;
+import util.Metrics;
+import util.Money;
+import util.NotFoundException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Non-interactive command mode, used when ConsoleUI is started with arguments.
+ *
+ * Commands (several on one command line are separated by a ";" argument):
+ *   generate-all                                     generate payments for all active subscriptions
+ *   generate <subscriptionId>
+ *   mark-paid <paymentId>... | mark-paid @<file>                 ids inline or from a file (whitespace/comma separated)
+ *   sweep-overdue
+ *   report month <YYYY-MM> | report year <YYYY> | report unpaid <subscriptionId>
+ *   rebuild-rollup
+ *   import subscriptions|payments <file.csv>
+ *   export <file> [from <date>] [to <date>] [status <PAID|UNPAID|OVERDUE>]
+ *   metrics [json]
+ *   --file <path>                                    read commands from a file, one per line (# comments)
+ *
+ * All commands are parsed before the first one runs. They share one set of services and the
+ * connection pool; output goes through one buffered writer.
+ * Exit status: 0 all commands succeeded, 1 a command failed (the rest are skipped), 2 usage error.
+ */
+public class BatchRunner {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+
+    private final SubscriptionService subscriptionService = ServiceFactory.subscriptionService();
+    private final PaymentService paymentService = ServiceFactory.paymentService();
+    private final ImportService importService = ServiceFactory.importService();
+    private final ExportService exportService = ServiceFactory.exportService();
+    private final OverdueService overdueService = ServiceFactory.overdueService();
+    private final PrintWriter out;
+
+    BatchRunner(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Parse and run the commands; returns the process exit status.
+     */
+    public static int run(String[] args) {
+        List<List<String>> commands;
+        try {
+            commands = parse(args);
+            for (List<String> command : commands) validate(command);
+        } catch (IllegalArgumentException | DateTimeException | IOException e) {
+            System.err.println("Usage error: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024));
+        try {
+            BatchRunner runner = new BatchRunner(out);
+            for (List<String> command : commands) {
+                try {
+                    runner.execute(command);
+                } catch (Exception e) {
+                    out.flush();
+                    System.err.println("Command failed: " + String.join(" ", command) + ": "
+                            + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+                    return EXIT_FAILED;
+                }
+            }
+            return EXIT_OK;
+        } finally {
+            out.flush();
+        }
+    }
+
+    // --- Parsing ---
+
+    private static List<List<String>> parse(String[] args) throws IOException {
+        List<List<String>> commands = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--file".equals(arg) || "-f".equals(arg)) {
+                if (i + 1 == args.length) throw new IllegalArgumentException(arg + " needs a path");
+                commands.addAll(readFile(Paths.get(args[++i])));
+            } else if (";".equals(arg)) {
+                if (!current.isEmpty()) commands.add(current);
+                current = new ArrayList<>();
+            } else {
+                current.add(arg);
+            }
+        }
+        if (!current.isEmpty()) commands.add(current);
+        if (commands.isEmpty()) throw new IllegalArgumentException("no command given");
+        return commands;
+    }
+
+    private static List<List<String>> readFile(Path file) throws IOException {
+        List<List<String>> commands = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            commands.add(new ArrayList<>(Arrays.asList(trimmed.split("\\s+"))));
+        }
+        return commands;
+    }
+
+    /** Check names, arity and argument formats so a bad script fails before anything runs. */
+    private static void validate(List<String> c) {
+        String name = c.get(0);
+        int args = c.size() - 1;
+        switch (name) {
+            case "generate-all":
+            case "sweep-overdue":
+            case "rebuild-rollup":
+                expect(c, args == 0, name);
+                break;
+            case "generate":
+                expect(c, args == 1, "generate <subscriptionId>");
+                break;
+            case "mark-paid":
+                expect(c, args >= 1, "mark-paid <paymentId>... | mark-paid @<file>");
+                break;
+            case "report":
+                expect(c, args == 2 && Arrays.asList("month", "year", "unpaid").contains(c.get(1)),
+                        "report month <YYYY-MM> | report year <YYYY> | report unpaid <subscriptionId>");
+                if ("month".equals(c.get(1))) YearMonth.parse(c.get(2));
+                if ("year".equals(c.get(1))) Integer.parseInt(c.get(2));
+                break;
+            case "import":
+                expect(c, args == 2 && ("subscriptions".equals(c.get(1)) || "payments".equals(c.get(1))),
+                        "import subscriptions|payments <file.csv>");
+                break;
+            case "export":
+                expect(c, args >= 1 && args % 2 == 1, "export <file> [from <date>] [to <date>] [status <status>]");
+                ExportFilters.parse(c);
+                break;
+            case "metrics":
+                expect(c, args == 0 || (args == 1 && "json".equals(c.get(1))), "metrics [json]");
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command '" + name + "'");
+        }
+    }
+
+    private static void expect(List<String> command, boolean ok, String usage) {
+        if (!ok) throw new IllegalArgumentException("'" + String.join(" ", command) + "', expected: " + usage);
+    }
+
+    // --- Execution ---
+
+    void execute(List<String> c) throws Exception {
+        long start = System.nanoTime();
+        switch (c.get(0)) {
+            case "generate-all":
+                out.println(subscriptionService.generateMonthlyPaymentsForAllActive() + " payments generated");
+                break;
+            case "generate":
+                subscriptionService.generateMonthlyPaymentsForSubscription(c.get(1));
+                out.println("payments generated for " + c.get(1));
+                break;
+            case "mark-paid":
+                markPaid(c.subList(1, c.size()));
+                break;
+            case "sweep-overdue":
+                out.println(overdueService.sweep());
+                break;
+            case "report":
+                report(c.get(1), c.get(2));
+                break;
+            case "rebuild-rollup":
+                paymentService.rebuildRevenueRollup();
+                out.println("rollup rebuilt");
+                break;
+            case "import":
+                ImportService.Result result = "subscriptions".equals(c.get(1))
+                        ? importService.importSubscriptions(Paths.get(c.get(2)))
+                        : importService.importPayments(Paths.get(c.get(2)));
+                out.println(result);
+                result.getErrors().forEach(e -> out.println("  rejected " + e));
+                break;
+            case "export":
+                export(c);
+                break;
+            case "metrics":
+                out.println(c.size() == 2 ? Metrics.snapshotJson() : Metrics.snapshotText());
+                break;
+            default:
+                throw new IllegalStateException("unvalidated command " + c.get(0));
+        }
+        Metrics.timer("batch." + c.get(0)).record(System.nanoTime() - start);
+    }
+
+    private void markPaid(List<String> args) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("@")) ids.addAll(readIds(Paths.get(arg.substring(1))));
+            else ids.add(arg);
+        }
+        PaymentService.MarkPaidResult result = paymentService.markPaymentsAsPaid(ids, LocalDateTime.now());
+        List<String> missing = result.getMissing();
+        out.println(result.getMarked() + " payments marked PAID");
+        if (!missing.isEmpty()) {
+            throw new NotFoundException(missing.size() + " payments not found: " + String.join(", ", missing));
+        }
+    }
+
+    /** Payment ids from a file: separated by whitespace, commas or line breaks; lines starting with # are skipped. */
+    static List<String> readIds(Path file) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+            for (String id : trimmed.split("[\\s,]+")) {
+                if (!id.isEmpty()) ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private void report(String kind, String arg) throws Exception {
+        switch (kind) {
+            case "month":
+                out.println("total paid " + arg + ": " + Money.format(paymentService.totalPaidForMonth(YearMonth.parse(arg))));
+                break;
+            case "year":
+                out.println("total paid " + arg + ": " + Money.format(paymentService.totalPaidForYear(Integer.parseInt(arg))));
+                break;
+            default:
+                out.println("total unpaid " + arg + ": " + Money.format(paymentService.totalUnpaidForSubscription(arg)));
+        }
+    }
+
+    private void export(List<String> c) throws Exception {
+        Path file = Paths.get(c.get(1));
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) name = name.substring(0, name.length() - 3);
+        ExportService.Format format = name.endsWith(".jsonl") || name.endsWith(".json")
+                ? ExportService.Format.JSONL : ExportService.Format.CSV;
+        ExportFilters f = ExportFilters.parse(c);
+        long rows = exportService.exportPayments(file, format, gzip, f.from, f.to, f.status);
+        out.println(rows + " payments exported to " + file.toAbsolutePath());
+    }
+
+    /** Export filters from the "key value" pairs after the export file name; null means no filter. */
+    private static final class ExportFilters {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final Pstatus status;
+
+        private ExportFilters(LocalDateTime from, LocalDateTime to, Pstatus status) {
+            this.from = from;
+            this.to = to;
+            this.status = status;
+        }
+
+        static ExportFilters parse(List<String> c) {
+            LocalDateTime from = null;
+            LocalDateTime to = null;
+            Pstatus status = null;
+            for (int i = 2; i + 1 < c.size(); i += 2) {
+                String key = c.get(i);
+                String value = c.get(i + 1);
+                try {
+                    switch (key) {
+                        case "from": from = DateUtils.parseFlexible(value); break;
+                        case "to": to = DateUtils.parseFlexible(value); break;
+                        case "status": status = Pstatus.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                        default: throw new IllegalArgumentException("unknown export filter '" + key + "'");
+                    }
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("invalid date '" + value + "'");
+                }
+            }
+            return new ExportFilters(from, to, status);
+        }
+    }
+}
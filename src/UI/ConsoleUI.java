@@ -2,19 +2,33 @@ package UI;
 
 
 
+import dao.DAOFactory;
 import entity.*;
+import serveses.ConcurrentService;
+import serveses.ExportService;
+import serveses.ImportService;
+import serveses.OverdueService;
 import serveses.PaymentService;
+import serveses.ServiceFactory;
 import serveses.SubscriptionService;
-import serveses.impl.PaymentServiceImpl;
-import serveses.impl.SubscriptionServiceImpl;
+import serveses.impl.ConcurrentServiceImpl;
+import util.DBConnection;
+import util.Metrics;
+import util.Money;
 import util.ValidationUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -22,11 +36,35 @@ import java.util.Scanner;
  * UI contains minimal input parsing and displays results.
  */
 public class ConsoleUI {
-    private final SubscriptionService subscriptionService = new SubscriptionServiceImpl();
-    private final PaymentService paymentService = new PaymentServiceImpl();
+    private static final int PAGE_SIZE = 20;
+
+    private final SubscriptionService subscriptionService = ServiceFactory.subscriptionService();
+    private final PaymentService paymentService = ServiceFactory.paymentService();
+    private final ImportService importService = ServiceFactory.importService();
+    private final ExportService exportService = ServiceFactory.exportService();
+    private final OverdueService overdueService = ServiceFactory.overdueService();
+    // report fan-out; built on the instrumented services above
+    private final ConcurrentService concurrentService = new ConcurrentServiceImpl(subscriptionService, paymentService);
+
+    {
+        Metrics.gauge("concurrentService", concurrentService::getStats);
+    }
     private final Scanner sc = new Scanner(System.in);
 
     public static void main(String[] args) {
+        try {
+            DAOFactory.migrateSchema();
+        } catch (Exception e) {
+            System.err.println("Database migration failed: " + e.getMessage());
+            DBConnection.shutdown();
+            System.exit(BatchRunner.EXIT_FAILED);
+        }
+        if (args.length > 0) {
+            // headless: run the commands given on the command line, see BatchRunner
+            int status = BatchRunner.run(args);
+            DBConnection.shutdown();
+            System.exit(status);
+        }
         new ConsoleUI().run();
     }
 
@@ -48,6 +86,11 @@ public class ConsoleUI {
                     case "9": deletePayment(); break;
                     case "10": markPaymentPaid(); break;
                     case "11": reportsMenu(); break;
+                    case "12": generatePaymentsForAllActive(); break;
+                    case "13": metricsMenu(); break;
+                    case "14": importCsv(); break;
+                    case "15": exportPayments(); break;
+                    case "16": overdueMenu(); break;
                     case "0": exit = true; break;
                     default: System.out.println("Unknown option");
                 }
@@ -56,6 +99,8 @@ public class ConsoleUI {
             }
         }
         sc.close();
+        concurrentService.close();
+        DBConnection.shutdown();
         System.out.println("Bye");
     }
 
@@ -70,8 +115,13 @@ public class ConsoleUI {
         System.out.println("7. List payments for subscription");
         System.out.println("8. Modify payment");
         System.out.println("9. Delete payment");
-        System.out.println("10. Mark payment PAID");
+        System.out.println("10. Mark payments PAID");
         System.out.println("11. Reports");
+        System.out.println("12. Generate monthly payments for all active subscriptions");
+        System.out.println("13. Metrics");
+        System.out.println("14. Import CSV");
+        System.out.println("15. Export payments");
+        System.out.println("16. Overdue payments");
         System.out.println("0. Exit");
         System.out.print("Choice: ");
     }
@@ -79,7 +129,7 @@ public class ConsoleUI {
     private void createSubscription() throws Exception {
         System.out.print("Service name: ");
         String name = sc.nextLine().trim();
-    double price = readDouble("Price (e.g. 9.99): ");
+    long priceCents = readMoney("Price (e.g. 9.99): ");
         LocalDateTime start = LocalDateTime.now();
     System.out.print("End date (YYYY-MM-DD or YYYY-MM-DDTHH:MM) or empty: ");
     String endStr = sc.nextLine().trim();
@@ -88,9 +138,9 @@ public class ConsoleUI {
         Subscription s;
         if ("1".equals(type)) {
             int months = readInt("Months engaged (int): ");
-            s = new FixedSubscription(null, name, price, start, end, Sstatus.ACTIVE, months);
+            s = new FixedSubscription(null, name, priceCents, start, end, Sstatus.ACTIVE, months);
         } else {
-            s = new FlexibleSubscription(null, name, price, start, end, Sstatus.ACTIVE);
+            s = new FlexibleSubscription(null, name, priceCents, start, end, Sstatus.ACTIVE);
         }
         ValidationUtils.validateSubscription(s);
         subscriptionService.create(s);
@@ -98,12 +148,7 @@ public class ConsoleUI {
     }
 
     private void listSubscriptions() throws Exception {
-        List<Subscription> list = subscriptionService.findAll();
-        if (list.isEmpty()) {
-            System.out.println("No subscriptions.");
-            return;
-        }
-        list.forEach(System.out::println);
+        browse(subscriptionService::findPage, "No subscriptions.");
     }
 
     private void modifySubscription() throws Exception {
@@ -123,12 +168,11 @@ public class ConsoleUI {
             existing.setServiceName(newName);
         }
         
-        System.out.print("New price (or press Enter to keep " + existing.getPrice() + "): ");
+        System.out.print("New price (or press Enter to keep " + Money.format(existing.getPriceCents()) + "): ");
         String priceStr = sc.nextLine().trim();
         if (!priceStr.isEmpty()) {
             try {
-                double newPrice = Double.parseDouble(priceStr);
-                existing.setPrice(newPrice);
+                existing.setPriceCents(Money.parseCents(priceStr));
             } catch (NumberFormatException e) {
                 System.out.println("Invalid price format. Keeping existing price.");
             }
@@ -175,6 +219,12 @@ public class ConsoleUI {
         System.out.println("Payments generated (if any).");
     }
 
+    private void generatePaymentsForAllActive() throws Exception {
+        long start = System.currentTimeMillis();
+        int created = subscriptionService.generateMonthlyPaymentsForAllActive();
+        System.out.println(created + " payments generated in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
     private void createPaymentRecord() throws Exception {
     String sid = readNonEmpty("Subscription id: ");
         System.out.print("Due date (YYYY-MM-DD or YYYY-MM-DDTHH:MM): ");
@@ -186,18 +236,23 @@ public class ConsoleUI {
 
     private void listPaymentsForSubscription() throws Exception {
     String sid = readNonEmpty("Subscription id: ");
-        List<Payment> list = paymentService.findBySubscription(sid);
-        if (list.isEmpty()) {
-            System.out.println("No payments for subscription " + sid);
-            return;
-        }
-        list.forEach(System.out::println);
+        browse((Payment after, int limit) -> paymentService.findPageBySubscription(sid, after, limit),
+                "No payments for subscription " + sid);
     }
 
     private void markPaymentPaid() throws Exception {
-    String pid = readNonEmpty("Payment id: ");
-        paymentService.markPaymentAsPaid(pid);
-        System.out.println("Payment marked as PAID: " + pid);
+        String input = readNonEmpty("Payment id(s), separated by spaces or commas, or @file with one id per line: ");
+        List<String> ids = new ArrayList<>();
+        if (input.startsWith("@")) {
+            ids.addAll(BatchRunner.readIds(Paths.get(input.substring(1).trim())));
+        } else {
+            for (String id : input.split("[\\s,]+")) {
+                if (!id.isEmpty()) ids.add(id);
+            }
+        }
+        PaymentService.MarkPaidResult result = paymentService.markPaymentsAsPaid(ids, LocalDateTime.now());
+        System.out.println(result.getMarked() + " payment(s) marked as PAID");
+        if (!result.getMissing().isEmpty()) System.out.println("Not found: " + String.join(", ", result.getMissing()));
     }
 
     private void modifyPayment() throws Exception {
@@ -279,26 +334,172 @@ public class ConsoleUI {
         System.out.println("1. Total paid for month");
         System.out.println("2. Total paid for year");
         System.out.println("3. Total unpaid for subscription");
-    String c = readChoice("choice: ", new String[]{"1","2","3"});
+        System.out.println("4. Rebuild monthly revenue rollup");
+        System.out.println("5. Paid/unpaid totals of all active subscriptions");
+        System.out.println("6. Month overview (month, previous month, year, active subscriptions)");
+    String c = readChoice("choice: ", new String[]{"1","2","3","4","5","6"});
         switch (c) {
             case "1":
                 System.out.print("Month (YYYY-MM): ");
                 YearMonth ym = YearMonth.parse(sc.nextLine().trim());
-                System.out.println("Total paid: " + paymentService.totalPaidForMonth(ym));
+                System.out.println("Total paid: " + Money.format(paymentService.totalPaidForMonth(ym)));
                 break;
             case "2":
                 int year = readInt("Year (YYYY): ");
-                System.out.println("Total paid: " + paymentService.totalPaidForYear(year));
+                System.out.println("Total paid: " + Money.format(paymentService.totalPaidForYear(year)));
                 break;
             case "3":
                 String sid = readNonEmpty("Subscription id: ");
-                System.out.println("Total unpaid: " + paymentService.totalUnpaidForSubscription(sid));
+                System.out.println("Total unpaid: " + Money.format(paymentService.totalUnpaidForSubscription(sid)));
+                break;
+            case "4":
+                long start = System.currentTimeMillis();
+                paymentService.rebuildRevenueRollup();
+                System.out.println("Rollup rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+                break;
+            case "5":
+                activeTotals();
+                break;
+            case "6":
+                System.out.print("Month (YYYY-MM): ");
+                ConcurrentService.Report r = concurrentService.report(YearMonth.parse(sc.nextLine().trim()));
+                System.out.println("Paid in " + r.getMonth() + ": " + Money.format(r.getPaidForMonth())
+                        + " (previous month " + Money.format(r.getPaidForPreviousMonth()) + ")");
+                System.out.println("Paid in " + r.getMonth().getYear() + ": " + Money.format(r.getPaidForYear()));
+                System.out.println("Active subscriptions: " + r.getActiveSubscriptions() + " (" + r.getElapsedMillis() + " ms)");
                 break;
             default:
                 System.out.println("Unknown option");
         }
     }
 
+    private void activeTotals() throws Exception {
+        long start = System.currentTimeMillis();
+        List<Subscription> active = subscriptionService.findActive();
+        List<String> ids = new ArrayList<>();
+        for (Subscription s : active) ids.add(s.getId());
+        // each call computes the per-subscription totals in parallel
+        Map<String, Long> paid = concurrentService.totalPaidForSubscriptions(ids);
+        Map<String, Long> unpaid = concurrentService.totalUnpaidForSubscriptions(ids);
+        System.out.printf("%-38s %-24s %14s %14s%n", "ID", "Service", "Paid", "Unpaid");
+        for (Subscription s : active) {
+            System.out.printf("%-38s %-24s %14s %14s%n", s.getId(), s.getServiceName(),
+                    Money.format(paid.get(s.getId())), Money.format(unpaid.get(s.getId())));
+        }
+        System.out.println(active.size() + " subscriptions in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void importCsv() throws Exception {
+        String kind = readChoice("Import (1=Subscriptions, 2=Payments): ", new String[]{"1", "2"});
+        Path file = Paths.get(readNonEmpty("CSV file path: "));
+        ImportService.Result result = "1".equals(kind)
+                ? importService.importSubscriptions(file)
+                : importService.importPayments(file);
+        System.out.println("Imported " + result.getImported() + " rows in " + result.getElapsedMillis() + " ms"
+                + ("1".equals(kind) ? ", generated " + result.getPaymentsGenerated() + " payments" : ""));
+        if (result.getRejected() > 0) {
+            System.out.println("Rejected " + result.getRejected() + " rows:");
+            result.getErrors().forEach(e -> System.out.println("  " + e));
+            if (result.getRejected() > result.getErrors().size()) System.out.println("  ...");
+        }
+    }
+
+    private void exportPayments() throws Exception {
+        Path file = Paths.get(readNonEmpty("File path (.csv or .jsonl, add .gz to compress): "));
+        String name = file.getFileName().toString().toLowerCase();
+        boolean gzip = name.endsWith(".gz");
+        if (gzip) name = name.substring(0, name.length() - 3);
+        ExportService.Format format = name.endsWith(".jsonl") || name.endsWith(".json")
+                ? ExportService.Format.JSONL : ExportService.Format.CSV;
+        System.out.print("Due from (YYYY-MM-DD, inclusive) or empty: ");
+        String fromStr = sc.nextLine().trim();
+        System.out.print("Due to (YYYY-MM-DD, exclusive) or empty: ");
+        String toStr = sc.nextLine().trim();
+        System.out.print("Status (PAID/UNPAID/OVERDUE) or empty for all: ");
+        String statusStr = sc.nextLine().trim();
+        Pstatus status = statusStr.isEmpty() ? null : Pstatus.valueOf(statusStr.toUpperCase());
+
+        long start = System.currentTimeMillis();
+        long rows = exportService.exportPayments(file, format, gzip,
+                fromStr.isEmpty() ? null : parseFlexibleDateTime(fromStr),
+                toStr.isEmpty() ? null : parseFlexibleDateTime(toStr), status);
+        System.out.println("Exported " + rows + " payments (" + format + (gzip ? ", gzip" : "") + ") to "
+                + file.toAbsolutePath() + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void overdueMenu() throws Exception {
+        System.out.println("1. Mark UNPAID payments past due as OVERDUE now");
+        System.out.println("2. List overdue payments");
+        System.out.println("0. Back");
+        String c = readChoice("choice: ", new String[]{"1", "2", "0"});
+        if ("1".equals(c)) {
+            OverdueService.SweepResult result = overdueService.sweep();
+            System.out.println("Marked " + result.getUpdated() + " payments OVERDUE in " + result.getElapsedMillis()
+                    + " ms (" + result.getChunks() + " chunks, " + String.format("%.0f", result.getRowsPerSecond()) + " rows/s)");
+        } else if ("2".equals(c)) {
+            browse(overdueService::findOverduePage, "No overdue payments.");
+        }
+    }
+
+    private void metricsMenu() throws Exception {
+        System.out.println(Metrics.snapshotText());
+        System.out.println("1. Export to file (.json for JSON, anything else for text)");
+        System.out.println("2. Reset");
+        System.out.println("0. Back");
+        String c = readChoice("choice: ", new String[]{"1", "2", "0"});
+        if ("1".equals(c)) {
+            Path file = Paths.get(readNonEmpty("File path: "));
+            String dump = file.toString().toLowerCase().endsWith(".json") ? Metrics.snapshotJson() : Metrics.snapshotText();
+            Files.write(file, dump.getBytes(StandardCharsets.UTF_8));
+            System.out.println("Metrics written to " + file.toAbsolutePath());
+        } else if ("2".equals(c)) {
+            Metrics.reset();
+            System.out.println("Metrics reset.");
+        }
+    }
+
+    // --- Paging ---
+    private interface PageQuery<T> {
+        List<T> fetch(T after, int limit) throws Exception;
+    }
+
+    /**
+     * Page through a keyset query. Each page is fetched with the last row of the previous
+     * page as cursor; the cursors of pages already shown are kept so "prev" can seek back.
+     */
+    private <T> void browse(PageQuery<T> query, String emptyMessage) throws Exception {
+        List<T> cursors = new ArrayList<>();
+        T after = null;
+        while (true) {
+            List<T> rows = query.fetch(after, PAGE_SIZE + 1);
+            boolean hasNext = rows.size() > PAGE_SIZE;
+            if (hasNext) rows = rows.subList(0, PAGE_SIZE);
+            boolean hasPrev = !cursors.isEmpty();
+            if (rows.isEmpty() && !hasPrev) {
+                System.out.println(emptyMessage);
+                return;
+            }
+            System.out.println("--- Page " + (cursors.size() + 1) + " ---");
+            rows.forEach(System.out::println);
+            if (!hasNext && !hasPrev) return;
+
+            List<String> options = new ArrayList<>();
+            if (hasNext) options.add("n");
+            if (hasPrev) options.add("p");
+            options.add("q");
+            String c = readChoice((hasNext ? "[n]ext " : "") + (hasPrev ? "[p]rev " : "") + "[q]uit: ",
+                    options.toArray(new String[0]));
+            if (c.equalsIgnoreCase("n")) {
+                cursors.add(after);
+                after = rows.get(rows.size() - 1);
+            } else if (c.equalsIgnoreCase("p")) {
+                after = cursors.remove(cursors.size() - 1);
+            } else {
+                return;
+            }
+        }
+    }
+
     // --- Helper methods for date parsing ---
     private LocalDateTime readFlexibleDateTime() {
         while (true) {
@@ -357,12 +558,12 @@ public class ConsoleUI {
         }
     }
 
-    private double readDouble(String prompt) {
+    private long readMoney(String prompt) {
         while (true) {
             System.out.print(prompt);
             String s = sc.nextLine().trim();
             try {
-                return Double.parseDouble(s);
+                return Money.parseCents(s);
             } catch (NumberFormatException e) {
                 System.out.println("Invalid number. Please enter a decimal value like 9.99.");
             }
@@ -0,0 +1,71 @@
+package UI;
+
+
+import dao.DAOFactory;
+import serveses.OverdueService;
+import serveses.impl.OverdueServiceImpl;
+import util.DBConnection;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless overdue sweep, for cron or as a long-running scheduler.
+ *
+ * Usage:
+ *   java -cp "out;lib/*" UI.OverdueSweepJob                  run one sweep and exit
+ *   java -cp "out;lib/*" UI.OverdueSweepJob --every 15       sweep every 15 minutes until stopped
+ *
+ * Exit code 0 on success, 1 if the schema migration or the single sweep failed, 2 on bad arguments.
+ */
+public class OverdueSweepJob {
+
+    public static void main(String[] args) {
+        long everyMinutes = 0;
+        if (args.length == 2 && "--every".equals(args[0])) {
+            try {
+                everyMinutes = Long.parseLong(args[1]);
+            } catch (NumberFormatException e) {
+                everyMinutes = -1;
+            }
+        }
+        if (args.length != 0 && everyMinutes <= 0) {
+            System.err.println("Usage: OverdueSweepJob [--every <minutes>]");
+            System.exit(2);
+        }
+
+        try {
+            DAOFactory.migrateSchema();
+        } catch (Exception e) {
+            System.err.println("Database migration failed: " + e.getMessage());
+            DBConnection.shutdown();
+            System.exit(1);
+        }
+        OverdueService service = new OverdueServiceImpl();
+        if (everyMinutes == 0) {
+            int status = runOnce(service) ? 0 : 1;
+            DBConnection.shutdown();
+            System.exit(status);
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdownNow();
+            DBConnection.shutdown();
+        }));
+        // a failed sweep is logged and retried on the next tick
+        scheduler.scheduleWithFixedDelay(() -> runOnce(service), 0, everyMinutes, TimeUnit.MINUTES);
+    }
+
+    private static boolean runOnce(OverdueService service) {
+        try {
+            System.out.println(LocalDateTime.now() + " " + service.sweep());
+            return true;
+        } catch (Exception e) {
+            System.err.println(LocalDateTime.now() + " Overdue sweep failed: " + e.getMessage());
+            return false;
+        }
+    }
+}
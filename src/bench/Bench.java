@@ -0,0 +1,60 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal JMH-style measurement loop: time-boxed warmup iterations followed by
+ * time-boxed measurement iterations, reporting mean and spread of ns/op.
+ * Results are written to a volatile sink so the JIT cannot drop the measured work.
+ *
+ * Tuning (system properties):
+ *  - bench.warmupIterations (default 3)
+ *  - bench.iterations       (default 5)
+ *  - bench.iterationMillis  (default 500)
+ */
+final class Bench {
+
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmupIterations", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 500L) * 1_000_000L;
+
+    static volatile Object sink;
+
+    private Bench() { /* utility class */ }
+
+    static void printHeader() {
+        System.out.printf("%-64s %14s %12s %14s%n", "Benchmark", "ns/op", "+/-", "ops/s");
+    }
+
+    static void run(String name, Op op) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(op);
+        }
+        List<Double> samples = new ArrayList<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            samples.add(iterate(op));
+        }
+
+        double mean = samples.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double variance = samples.stream().mapToDouble(v -> (v - mean) * (v - mean)).sum() / Math.max(1, samples.size() - 1);
+        System.out.printf("%-64s %14.1f %12.1f %14.0f%n", name, mean, Math.sqrt(variance), 1e9 / mean);
+    }
+
+    /** Runs op repeatedly for one iteration window and returns the average ns/op. */
+    private static double iterate(Op op) throws Exception {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return elapsed / (double) ops;
+    }
+}
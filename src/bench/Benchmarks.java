@@ -0,0 +1,281 @@
+package bench;
+
+import dao.DAOFactory;
+import dao.PaymentDAO;
+import dao.RevenueRollupDAO;
+import dao.SubscriptionDAO;
+import dao.impl.ColumnarPaymentDAO;
+import dao.impl.ColumnarRevenueRollupDAO;
+import dao.impl.ColumnarStore;
+import dao.impl.ColumnarSubscriptionDAO;
+import dao.impl.PaymentDAOImpl;
+import dao.impl.SubscriptionDAOImpl;
+import entity.FixedSubscription;
+import entity.FlexibleSubscription;
+import entity.Payment;
+import entity.Pstatus;
+import entity.Sstatus;
+import entity.Subscription;
+import serveses.PaymentService;
+import serveses.SubscriptionService;
+import serveses.impl.PaymentServiceImpl;
+import serveses.impl.SubscriptionServiceImpl;
+import util.DBConnection;
+import util.DateUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Benchmarks for the hot paths: DateUtils schedule generation, DAO row mapping,
+ * payment generation and the PaymentServiceImpl totals.
+ *
+ * Usage:
+ *   java -cp "out;lib/*" bench.Benchmarks
+ *
+ * Options (system properties):
+ *  - bench.store                  memory (default, the in-memory ColumnarStore) or jdbc (the database configured in DBConnection)
+ *  - bench.subscriptions          number of seeded subscriptions (default 1000)
+ *  - bench.months                 months of payment history per subscription (default 24)
+ *  - bench.paidRatio              fraction of seeded payments marked PAID (default 0.5)
+ *  - bench.include                only run benchmarks whose name contains this text
+ * plus the iteration settings documented in {@link Bench}.
+ *
+ * With bench.store=jdbc the seeded rows are named "bench-..." and deleted afterwards.
+ *
+ * Before timing anything the month and year paid totals are checked against the original
+ * computation (see {@link #verifyTotals}); a mismatch stops the run with an error.
+ */
+public class Benchmarks {
+
+    private static final String STORE = System.getProperty("bench.store", "memory");
+    private static final int SUBSCRIPTIONS = Integer.getInteger("bench.subscriptions", 1000);
+    private static final int MONTHS = Integer.getInteger("bench.months", 24);
+    private static final double PAID_RATIO = Double.parseDouble(System.getProperty("bench.paidRatio", "0.5"));
+    private static final String INCLUDE = System.getProperty("bench.include", "");
+
+    public static void main(String[] args) throws Exception {
+        SubscriptionDAO subscriptionDAO;
+        PaymentDAO paymentDAO;
+        RevenueRollupDAO revenueRollupDAO;
+        if ("jdbc".equalsIgnoreCase(STORE)) {
+            DAOFactory.migrateSchema();
+            subscriptionDAO = DAOFactory.subscriptionDAO();
+            paymentDAO = DAOFactory.paymentDAO();
+            revenueRollupDAO = DAOFactory.revenueRollupDAO();
+        } else {
+            ColumnarStore store = new ColumnarStore();
+            subscriptionDAO = new ColumnarSubscriptionDAO(store);
+            paymentDAO = new ColumnarPaymentDAO(store);
+            revenueRollupDAO = new ColumnarRevenueRollupDAO(store);
+        }
+        SubscriptionService subscriptionService = new SubscriptionServiceImpl(subscriptionDAO, paymentDAO);
+        PaymentService paymentService = new PaymentServiceImpl(paymentDAO, subscriptionDAO, revenueRollupDAO);
+
+        System.out.println("Seeding " + SUBSCRIPTIONS + " subscriptions x " + MONTHS + " months (store=" + STORE + ")...");
+        List<String> ids = seed(subscriptionDAO, paymentDAO, subscriptionService);
+        try {
+            verifyTotals(subscriptionDAO, paymentDAO, paymentService);
+            runAll(ids, paymentDAO, subscriptionService, paymentService);
+        } finally {
+            if ("jdbc".equalsIgnoreCase(STORE)) {
+                for (String id : ids) subscriptionDAO.delete(id);
+                DBConnection.shutdown();
+            }
+        }
+    }
+
+    private static void runAll(List<String> ids, PaymentDAO paymentDAO, SubscriptionService subscriptionService,
+                               PaymentService paymentService) throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusMonths(MONTHS);
+        YearMonth month = YearMonth.now().minusMonths(1);
+        int[] cursor = {0};
+
+        Bench.printHeader();
+        bench("DateUtils.generateMonthlyDates(10y)",
+                () -> DateUtils.generateMonthlyDates(start, start.plusYears(10)));
+
+        Method paymentMapRow = mapRow(PaymentDAOImpl.class);
+        ResultSet paymentRow = fakeRow(paymentColumns());
+        bench("PaymentDAOImpl.mapRow", () -> paymentMapRow.invoke(new PaymentDAOImpl(), paymentRow));
+
+        Method subscriptionMapRow = mapRow(SubscriptionDAOImpl.class);
+        ResultSet subscriptionRow = fakeRow(subscriptionColumns());
+        bench("SubscriptionDAOImpl.mapRow", () -> subscriptionMapRow.invoke(new SubscriptionDAOImpl(), subscriptionRow));
+
+        bench("PaymentDAO.findBySubscription(full rows)",
+                () -> paymentDAO.findBySubscription(ids.get(cursor[0]++ % ids.size())));
+        bench("PaymentDAO.findDueDates(due date view)",
+                () -> paymentDAO.findDueDates(ids.get(cursor[0]++ % ids.size())));
+        bench("PaymentDAO.countStatuses(aggregate)",
+                () -> paymentDAO.countStatuses(ids.get(cursor[0]++ % ids.size())));
+
+        bench("SubscriptionServiceImpl.generateMonthlyPaymentsForSubscription", () -> {
+            subscriptionService.generateMonthlyPaymentsForSubscription(ids.get(cursor[0]++ % ids.size()));
+            return null;
+        });
+        List<Payment> recorded = paymentDAO.findBySubscription(ids.get(0));
+        bench("PaymentServiceImpl.recordPayment(upsert)",
+                () -> paymentService.recordPayment(recorded.get(cursor[0]++ % recorded.size())));
+        LocalDateTime monthStart = month.atDay(1).atStartOfDay();
+        bench("PaymentDAO.sumPaidCentsBetween(month, payment scan)",
+                () -> paymentDAO.sumPaidCentsBetween(monthStart, monthStart.plusMonths(1)));
+        bench("PaymentServiceImpl.totalPaidForMonth", () -> paymentService.totalPaidForMonth(month));
+        bench("PaymentServiceImpl.totalPaidForYear", () -> paymentService.totalPaidForYear(month.getYear()));
+        bench("PaymentServiceImpl.totalPaidForSubscription",
+                () -> paymentService.totalPaidForSubscription(ids.get(cursor[0]++ % ids.size())));
+        bench("PaymentServiceImpl.totalUnpaidForSubscription",
+                () -> paymentService.totalUnpaidForSubscription(ids.get(cursor[0]++ % ids.size())));
+    }
+
+    /**
+     * Compare the paid totals of every seeded month and year, as computed by the DAO aggregate
+     * (sumPaidCentsBetween) and by the service (monthly rollup), with the original implementation:
+     * every payment from findAll() whose payment date falls in the period, priced with findById().
+     */
+    static void verifyTotals(SubscriptionDAO subscriptionDAO, PaymentDAO paymentDAO, PaymentService paymentService)
+            throws Exception {
+        Map<YearMonth, Long> byMonth = new TreeMap<>();
+        Map<String, Long> prices = new HashMap<>();
+        for (Payment p : paymentDAO.findAll()) {
+            if (p.getPaymentDate() == null) continue;
+            Long price = prices.get(p.getSubscriptionId());
+            if (price == null) {
+                price = subscriptionDAO.findById(p.getSubscriptionId()).map(Subscription::getPriceCents).orElse(0L);
+                prices.put(p.getSubscriptionId(), price);
+            }
+            byMonth.merge(YearMonth.from(p.getPaymentDate()), price, Long::sum);
+        }
+
+        Map<Integer, Long> byYear = new TreeMap<>();
+        int checked = 0;
+        YearMonth last = YearMonth.now().plusMonths(1);
+        for (YearMonth month = last.minusMonths(MONTHS + 1); !month.isAfter(last); month = month.plusMonths(1)) {
+            long expected = byMonth.getOrDefault(month, 0L);
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            check(month.toString(), expected, paymentDAO.sumPaidCentsBetween(from, from.plusMonths(1)),
+                    paymentService.totalPaidForMonth(month));
+            byYear.put(month.getYear(), 0L);
+            checked++;
+        }
+        // months outside the checked range still count towards their year
+        for (Map.Entry<YearMonth, Long> m : byMonth.entrySet()) {
+            byYear.computeIfPresent(m.getKey().getYear(), (y, total) -> total + m.getValue());
+        }
+        for (Map.Entry<Integer, Long> year : byYear.entrySet()) {
+            LocalDateTime from = LocalDateTime.of(year.getKey(), 1, 1, 0, 0);
+            check(String.valueOf(year.getKey()), year.getValue(), paymentDAO.sumPaidCentsBetween(from, from.plusYears(1)),
+                    paymentService.totalPaidForYear(year.getKey()));
+        }
+        System.out.println("Paid totals match the findAll/findById computation for " + checked + " months and "
+                + byYear.size() + " years.");
+    }
+
+    private static void check(String period, long expected, long aggregate, long service) {
+        if (aggregate != expected || service != expected) {
+            throw new IllegalStateException("Paid total mismatch for " + period + ": findAll/findById=" + expected
+                    + ", sumPaidCentsBetween=" + aggregate + ", service=" + service);
+        }
+    }
+
+    private static void bench(String name, Bench.Op op) throws Exception {
+        if (name.contains(INCLUDE)) Bench.run(name, op);
+    }
+
+    // --- seeding ---
+
+    static List<String> seed(SubscriptionDAO subscriptionDAO, PaymentDAO paymentDAO,
+                                     SubscriptionService subscriptionService) throws Exception {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now().minusMonths(MONTHS - 1).withNano(0);
+        List<String> ids = new ArrayList<>(SUBSCRIPTIONS);
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            String name = String.format("bench-%06d", i);
+            long priceCents = 100 + random.nextInt(5000);
+            Subscription s = i % 2 == 0
+                    ? new FlexibleSubscription(null, name, priceCents, start, LocalDateTime.now(), Sstatus.ACTIVE)
+                    : new FixedSubscription(null, name, priceCents, start, null, Sstatus.ACTIVE, MONTHS);
+            subscriptionDAO.create(s);
+            ids.add(s.getId());
+        }
+        subscriptionService.generateMonthlyPaymentsForAllActive();
+
+        for (String id : ids) {
+            for (Payment p : paymentDAO.findBySubscription(id)) {
+                if (random.nextDouble() >= PAID_RATIO) continue;
+                p.setPaymentDate(p.getDueDate().plusDays(random.nextInt(10)));
+                p.setStatus(Pstatus.PAID);
+                paymentDAO.update(p);
+            }
+        }
+        return ids;
+    }
+
+    // --- row mapping fixtures ---
+
+    private static Method mapRow(Class<?> daoClass) throws NoSuchMethodException {
+        Method m = daoClass.getDeclaredMethod("mapRow", ResultSet.class);
+        m.setAccessible(true);
+        return m;
+    }
+
+    private static Map<String, Object> paymentColumns() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "0b5b4c8e-6f4e-4f3a-9d38-2a7c4f1e9b10");
+        row.put("subscription_id", "7f1d2c3b-4a5e-4d6f-8a9b-0c1d2e3f4a5b");
+        row.put("due_date", Timestamp.valueOf("2026-01-15 10:00:00"));
+        row.put("payment_date", Timestamp.valueOf("2026-01-17 09:30:00"));
+        row.put("payment_type", "auto");
+        row.put("status", "PAID");
+        return row;
+    }
+
+    private static Map<String, Object> subscriptionColumns() {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", "7f1d2c3b-4a5e-4d6f-8a9b-0c1d2e3f4a5b");
+        row.put("service_name", "bench-service");
+        row.put("price_cents", 1999L);
+        row.put("start_date", Timestamp.valueOf("2025-01-15 10:00:00"));
+        row.put("end_date", null);
+        row.put("status", "ACTIVE");
+        row.put("type", "FixedSubscription");
+        row.put("months_engaged", 12);
+        return row;
+    }
+
+    /**
+     * A single-row ResultSet answering getters by column label or 1-based index.
+     */
+    private static ResultSet fakeRow(Map<String, Object> columns) {
+        List<Object> byIndex = new ArrayList<>(columns.values());
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (args == null || args.length != 1) {
+                        if (method.getName().equals("wasNull")) return false;
+                        throw new SQLException("Unsupported in benchmark fixture: " + method.getName());
+                    }
+                    Object v = args[0] instanceof Integer ? byIndex.get((Integer) args[0] - 1) : columns.get(args[0]);
+                    switch (method.getName()) {
+                        case "getString": return v == null ? null : v.toString();
+                        case "getTimestamp": return v;
+                        case "getDouble": return v == null ? 0.0 : ((Number) v).doubleValue();
+                        case "getInt": return v == null ? 0 : ((Number) v).intValue();
+                        case "getLong": return v == null ? 0L : ((Number) v).longValue();
+                        case "getObject": return v;
+                        default: throw new SQLException("Unsupported in benchmark fixture: " + method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import util.DBConnection;
+import util.IdGenerator;
+import util.Ids;
+import util.SnowflakeIdGenerator;
+import util.UuidV7IdGenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Id generator comparison: generation cost, and with bench.store=jdbc the insert rate and primary key
+ * size of one table per id kind:
+ *  - varchar random  the schema before V9 (random UUID text)
+ *  - uuid random     native uuid, random (version 4)
+ *  - uuid v7         native uuid, time-ordered (the default generator)
+ *  - bigint          Snowflake numbers
+ *
+ * Usage:
+ *   java -cp "out;lib/*" bench.IdBenchmarks
+ *   java -Dbench.store=jdbc -Dbench.idRows=2000000 -cp "out;lib/*" bench.IdBenchmarks
+ *
+ * Options (system properties):
+ *  - bench.store       memory (default, generation only) or jdbc (also inserts into the database from DBConnection)
+ *  - bench.idRows      rows inserted per table (default 200000); random keys fall behind once the index
+ *                      outgrows shared_buffers, so use a few million rows to see the full effect
+ * plus the iteration settings documented in {@link Bench}.
+ *
+ * The tables are named bench_ids_* and dropped afterwards.
+ */
+public class IdBenchmarks {
+
+    private static final String STORE = System.getProperty("bench.store", "memory");
+    private static final int ROWS = Integer.getInteger("bench.idRows", 200_000);
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        IdGenerator random = Ids.create("random");
+        UuidV7IdGenerator v7 = new UuidV7IdGenerator();
+        SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(0);
+
+        Bench.printHeader();
+        Bench.run("random UUID (v4) text", random::nextId);
+        Bench.run("UuidV7IdGenerator.nextId", v7::nextId);
+        Bench.run("SnowflakeIdGenerator.nextLong", snowflake::nextLong);
+
+        if (!"jdbc".equalsIgnoreCase(STORE)) return;
+        System.out.println();
+        System.out.println("Inserting " + ROWS + " rows per table...");
+        System.out.printf("%-20s %14s %14s %14s%n", "Id kind", "rows/s", "pkey MB", "pkey B/row");
+        try {
+            insert("varchar random", "VARCHAR(100)", ps -> ps.setString(1, random.nextId()));
+            insert("uuid random", "uuid", ps -> ps.setObject(1, UUID.randomUUID()));
+            insert("uuid v7", "uuid", ps -> ps.setObject(1, v7.next()));
+            insert("bigint", "BIGINT", ps -> ps.setLong(1, snowflake.nextLong()));
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private interface IdBinder {
+        void bind(PreparedStatement ps) throws Exception;
+    }
+
+    private static void insert(String kind, String sqlType, IdBinder binder) throws Exception {
+        String table = "bench_ids_" + kind.replace(' ', '_');
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+            st.execute("CREATE TABLE " + table + " (id " + sqlType + " PRIMARY KEY, created TIMESTAMP NOT NULL DEFAULT now())");
+            try {
+                long start = System.nanoTime();
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + table + "(id) VALUES (?)")) {
+                    for (int i = 0; i < ROWS; i++) {
+                        binder.bind(ps);
+                        ps.addBatch();
+                        if ((i + 1) % BATCH_SIZE == 0) ps.executeBatch();
+                    }
+                    ps.executeBatch();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long indexBytes;
+                try (ResultSet rs = st.executeQuery("SELECT pg_relation_size('" + table + "_pkey')")) {
+                    rs.next();
+                    indexBytes = rs.getLong(1);
+                }
+                System.out.printf("%-20s %14.0f %14.1f %14.1f%n", kind, ROWS / seconds,
+                        indexBytes / (1024.0 * 1024.0), indexBytes / (double) ROWS);
+            } finally {
+                st.execute("DROP TABLE IF EXISTS " + table);
+            }
+        }
+    }
+}
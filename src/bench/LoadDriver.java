@@ -0,0 +1,158 @@
+package bench;
+
+import dao.DAOFactory;
+import dao.PaymentDAO;
+import dao.RevenueRollupDAO;
+import dao.SubscriptionDAO;
+import dao.impl.ColumnarPaymentDAO;
+import dao.impl.ColumnarRevenueRollupDAO;
+import dao.impl.ColumnarStore;
+import dao.impl.ColumnarSubscriptionDAO;
+import entity.Payment;
+import serveses.ConcurrentService;
+import serveses.PaymentService;
+import serveses.SubscriptionService;
+import serveses.impl.ConcurrentServiceImpl;
+import serveses.impl.PaymentServiceImpl;
+import serveses.impl.SubscriptionServiceImpl;
+import util.DBConnection;
+import util.VirtualThreads;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Throughput of the service layer under N concurrent operators. Each operator is a session on its
+ * own (virtual) thread that runs a mix of console operations back to back through a
+ * {@link ConcurrentService}, which caps the operations in flight at the connection pool size:
+ *   40% subscription lookup, 20% payment page, 20% paid total, 10% record payment, 10% month overview
+ * For every operator count the driver reports operations/s, latency percentiles and the speedup
+ * over a single operator.
+ *
+ * Usage:
+ *   java -cp "out;lib/*" bench.LoadDriver
+ *   java -Dbench.store=jdbc -Dload.operators=1,4,16,64 -Dload.seconds=10 -cp "out;lib/*" bench.LoadDriver
+ *
+ * Options (system properties):
+ *  - load.operators           comma separated operator counts (default 1,2,4,8,16,32,64)
+ *  - load.seconds             measured seconds per operator count (default 5)
+ *  - concurrency.maxInFlight  operations in flight (default the connection pool size)
+ * plus bench.store, bench.subscriptions, bench.months and bench.paidRatio as in {@link Benchmarks}.
+ */
+public class LoadDriver {
+
+    private static final String STORE = System.getProperty("bench.store", "memory");
+    private static final String OPERATORS = System.getProperty("load.operators", "1,2,4,8,16,32,64");
+    private static final long SECONDS = Long.getLong("load.seconds", 5L);
+    private static final int PAGE_SIZE = 20;
+
+    public static void main(String[] args) throws Exception {
+        SubscriptionDAO subscriptionDAO;
+        PaymentDAO paymentDAO;
+        RevenueRollupDAO revenueRollupDAO;
+        if ("jdbc".equalsIgnoreCase(STORE)) {
+            DAOFactory.migrateSchema();
+            subscriptionDAO = DAOFactory.subscriptionDAO();
+            paymentDAO = DAOFactory.paymentDAO();
+            revenueRollupDAO = DAOFactory.revenueRollupDAO();
+        } else {
+            ColumnarStore store = new ColumnarStore();
+            subscriptionDAO = new ColumnarSubscriptionDAO(store);
+            paymentDAO = new ColumnarPaymentDAO(store);
+            revenueRollupDAO = new ColumnarRevenueRollupDAO(store);
+        }
+        SubscriptionService subscriptionService = new SubscriptionServiceImpl(subscriptionDAO, paymentDAO);
+        PaymentService paymentService = new PaymentServiceImpl(paymentDAO, subscriptionDAO, revenueRollupDAO);
+
+        System.out.println("Seeding (store=" + STORE + ")...");
+        List<String> ids = Benchmarks.seed(subscriptionDAO, paymentDAO, subscriptionService);
+        List<Payment> payments = new ArrayList<>();
+        for (String id : ids.subList(0, Math.min(100, ids.size()))) payments.addAll(paymentDAO.findBySubscription(id));
+
+        try (ConcurrentService concurrent = new ConcurrentServiceImpl(subscriptionService, paymentService)) {
+            System.out.println("maxInFlight=" + concurrent.getMaxInFlight() + ", virtual threads "
+                    + (VirtualThreads.isAvailable() ? "on" : "unavailable (platform threads)") + ", " + SECONDS + " s per run");
+            System.out.printf("%10s %12s %12s %10s %10s %10s %9s%n", "operators", "ops", "ops/s", "p50 us", "p99 us", "max us", "speedup");
+            double baseline = 0;
+            for (String n : OPERATORS.split(",")) {
+                int operators = Integer.parseInt(n.trim());
+                long[] latencies = run(operators, concurrent, subscriptionService, paymentService, ids, payments);
+                double opsPerSecond = latencies.length / (double) SECONDS;
+                if (baseline == 0) baseline = opsPerSecond;
+                Arrays.sort(latencies);
+                System.out.printf("%10d %12d %12.0f %10.0f %10.0f %10.0f %8.2fx%n", operators, latencies.length, opsPerSecond,
+                        percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                        latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e3, opsPerSecond / baseline);
+            }
+        } finally {
+            if ("jdbc".equalsIgnoreCase(STORE)) {
+                for (String id : ids) subscriptionDAO.delete(id);
+                DBConnection.shutdown();
+            }
+        }
+    }
+
+    /** Run the operators for SECONDS and return the latency of every operation, in ns. */
+    private static long[] run(int operators, ConcurrentService concurrent, SubscriptionService subscriptionService,
+                              PaymentService paymentService, List<String> ids, List<Payment> payments) throws Exception {
+        long deadline = System.nanoTime() + SECONDS * 1_000_000_000L;
+        YearMonth month = YearMonth.now().minusMonths(1);
+        ExecutorService sessions = VirtualThreads.newExecutor("operator", operators);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < operators; i++) {
+                results.add(sessions.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < deadline) {
+                        String id = ids.get(random.nextInt(ids.size()));
+                        int pick = random.nextInt(100);
+                        if (pick < 40) {
+                            concurrent.call(() -> subscriptionService.findById(id));
+                        } else if (pick < 60) {
+                            concurrent.call(() -> paymentService.findPageBySubscription(id, null, PAGE_SIZE));
+                        } else if (pick < 80) {
+                            concurrent.call(() -> paymentService.totalPaidForSubscription(id));
+                        } else if (pick < 90) {
+                            Payment p = payments.get(random.nextInt(payments.size()));
+                            concurrent.call(() -> paymentService.recordPayment(p));
+                        } else {
+                            // fans out on its own permits, so it is not wrapped in call()
+                            concurrent.report(month);
+                        }
+                        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+                        samples[count++] = System.nanoTime() - now;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+            List<long[]> perOperator = new ArrayList<>();
+            int total = 0;
+            for (Future<long[]> f : results) {
+                perOperator.add(f.get());
+                total += perOperator.get(perOperator.size() - 1).length;
+            }
+            long[] all = new long[total];
+            int at = 0;
+            for (long[] samples : perOperator) {
+                System.arraycopy(samples, 0, all, at, samples.length);
+                at += samples.length;
+            }
+            return all;
+        } finally {
+            sessions.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,101 @@
+package dao;
+
+import dao.impl.CachingSubscriptionDAO;
+import dao.impl.ColumnarPaymentDAO;
+import dao.impl.ColumnarRevenueRollupDAO;
+import dao.impl.ColumnarStore;
+import dao.impl.ColumnarSubscriptionDAO;
+import dao.impl.PaymentDAOImpl;
+import dao.impl.RevenueRollupDAOImpl;
+import dao.impl.SubscriptionDAOImpl;
+import util.AppException;
+import util.Ids;
+import util.Metrics;
+import util.SchemaMigrator;
+
+/**
+ * Shared DAO instances used by the services.
+ * Every caller gets the same SubscriptionDAO, so when the entity cache is enabled
+ * a write through one service invalidates what the other service would read.
+ * Every DAO is wrapped with {@link Metrics#instrument} so each call is timed.
+ *
+ * Enable the subscription cache with -Dsubscription.cache=true.
+ * Start with -Dsubscriptions.store=memory to keep all data in an in-memory {@link ColumnarStore}
+ * instead of PostgreSQL (batch simulations, load tests); nothing is persisted and the cache is not used.
+ */
+public final class DAOFactory {
+
+    // --- Subscription cache settings ---
+    private static final boolean CACHE_ENABLED = Boolean.parseBoolean(System.getProperty("subscription.cache", "false"));
+    private static final int CACHE_MAX_SIZE = 10_000;
+    private static final long CACHE_TTL_MILLIS = 5 * 60 * 1000L;
+
+    // --- Storage backend: "jdbc" (default) or "memory" ---
+    private static final String STORE = System.getProperty("subscriptions.store", "jdbc");
+
+    private static SubscriptionDAO subscriptionDAO;
+    private static PaymentDAO paymentDAO;
+    private static RevenueRollupDAO revenueRollupDAO;
+    private static ColumnarStore columnarStore;
+
+    private DAOFactory() { /* utility class */ }
+
+    public static synchronized SubscriptionDAO subscriptionDAO() {
+        if (subscriptionDAO == null) {
+            SubscriptionDAO dao;
+            if (isMemoryStore()) {
+                dao = new ColumnarSubscriptionDAO(columnarStore());
+            } else {
+                dao = new SubscriptionDAOImpl();
+            }
+            if (CACHE_ENABLED && !isMemoryStore()) {
+                CachingSubscriptionDAO cache = new CachingSubscriptionDAO(dao, CACHE_MAX_SIZE, CACHE_TTL_MILLIS);
+                Metrics.gauge("subscriptionDAO.cache", cache::getStats);
+                dao = cache;
+            }
+            subscriptionDAO = Metrics.instrument(SubscriptionDAO.class, dao, "subscriptionDAO");
+        }
+        return subscriptionDAO;
+    }
+
+    public static synchronized PaymentDAO paymentDAO() {
+        if (paymentDAO == null) {
+            PaymentDAO dao = isMemoryStore() ? new ColumnarPaymentDAO(columnarStore()) : new PaymentDAOImpl();
+            paymentDAO = Metrics.instrument(PaymentDAO.class, dao, "paymentDAO");
+        }
+        return paymentDAO;
+    }
+
+    public static synchronized RevenueRollupDAO revenueRollupDAO() {
+        if (revenueRollupDAO == null) {
+            RevenueRollupDAO dao = isMemoryStore() ? new ColumnarRevenueRollupDAO(columnarStore()) : new RevenueRollupDAOImpl();
+            revenueRollupDAO = Metrics.instrument(RevenueRollupDAO.class, dao, "revenueRollupDAO");
+        }
+        return revenueRollupDAO;
+    }
+
+    /**
+     * Bring the database schema up to date; call once at startup before the first DAO call.
+     * Also rejects an id generator the uuid columns cannot store. Nothing to do for the in-memory store.
+     */
+    public static void migrateSchema() throws Exception {
+        if (isMemoryStore()) return;
+        if (!Ids.getGenerator().producesUuids()) {
+            throw new AppException("id.generator=" + Ids.GENERATOR_NAME + " does not produce UUIDs, which the database"
+                    + " schema stores; use it with -Dsubscriptions.store=memory");
+        }
+        SchemaMigrator.migrate();
+    }
+
+    public static boolean isMemoryStore() {
+        return "memory".equalsIgnoreCase(STORE);
+    }
+
+    private static ColumnarStore columnarStore() {
+        if (columnarStore == null) {
+            columnarStore = new ColumnarStore();
+            Metrics.gauge("store.columnar", columnarStore::getStats);
+        }
+        return columnarStore;
+    }
+}
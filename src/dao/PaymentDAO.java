@@ -1,17 +1,133 @@
 package dao;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import entity.Payment;
+import entity.Pstatus;
 
 public interface PaymentDAO {
     void create(Payment p) throws Exception;
+
+    /**
+     * Insert the payments in one transaction, silently skipping any whose
+     * (subscription_id, due_date) already exists.
+     *
+     * @return number of rows actually inserted
+     */
+    int createAllIfAbsent(List<Payment> payments) throws Exception;
+
+    /**
+     * Load many payments (PostgreSQL COPY), reading the iterator once. A payment whose subscription
+     * already has one on the same due date (e.g. a generated UNPAID row) updates that row's
+     * payment_date, payment_type and status instead; the existing id is kept. Within the input the
+     * last row per due date wins. Either every row is loaded or none.
+     *
+     * @return number of rows inserted or updated
+     */
+    long bulkInsert(Iterator<Payment> payments) throws Exception;
+
+    /**
+     * Insert the payment, or if its id exists update payment_date, payment_type and status
+     * (the columns update() writes) in the same statement.
+     */
+    void upsert(Payment p) throws Exception;
+
+    /**
+     * upsert() for many payments in one transaction, BATCH_SIZE rows per statement.
+     * If an id appears more than once, the last occurrence wins.
+     *
+     * @return number of rows inserted or updated
+     */
+    int upsertAll(List<Payment> payments) throws Exception;
     Optional<Payment> findById(String id) throws Exception;
     List<Payment> findBySubscription(String subscriptionId) throws Exception;
+
+    /**
+     * Keyset page of a subscription's payments ordered by (due_date, id).
+     *
+     * @param after last payment of the previous page, or null for the first page
+     */
+    List<Payment> findPageBySubscription(String subscriptionId, Payment after, int limit) throws Exception;
     List<Payment> findAll() throws Exception;
+
+    /**
+     * Same rows and order as findAll(), read lazily through a server-side cursor.
+     * The stream holds a database connection until it is closed.
+     */
+    Stream<Payment> streamAll() throws Exception;
+
+    /**
+     * Payments whose due_date is in [from, to), ordered by (due_date, id), read lazily like streamAll().
+     * Null bounds or status mean no filter on that column.
+     */
+    Stream<Payment> streamByDueDate(LocalDateTime from, LocalDateTime to, Pstatus status) throws Exception;
     void update(Payment p) throws Exception;
     void delete(String id) throws Exception;
     List<Payment> findUnpaidBySubscription(String subscriptionId) throws Exception;
+
+    /**
+     * Due dates of the subscription's payments in ascending order, without the rest of the row.
+     */
+    List<LocalDateTime> findDueDates(String subscriptionId) throws Exception;
+
+    /**
+     * Number of PAID and of other payments of the subscription, counted by the store.
+     */
+    StatusCounts countStatuses(String subscriptionId) throws Exception;
+
+    /**
+     * Keyset page of the payments with the given status ordered by (due_date, id).
+     *
+     * @param after last payment of the previous page, or null for the first page
+     */
+    List<Payment> findPageByStatus(Pstatus status, Payment after, int limit) throws Exception;
+
+    /**
+     * Set status OVERDUE on at most limit UNPAID payments due before the cutoff, in one statement.
+     * Rows locked by other transactions are skipped, so concurrent sweeps split the work.
+     *
+     * @return number of payments changed
+     */
+    int markOverdue(LocalDateTime dueBefore, int limit) throws Exception;
+
+    /**
+     * Mark the given payments PAID in one statement. Payments already PAID keep their payment date,
+     * the others get paidAt.
+     *
+     * @return ids of the payments that exist (each id at most once)
+     */
+    List<String> markPaid(Collection<String> ids, LocalDateTime paidAt) throws Exception;
     List<Payment> findLastPayments(int limit) throws Exception;
+
+    /**
+     * Sum, in cents, of the subscription price of every payment whose payment_date falls in [from, to).
+     */
+    long sumPaidCentsBetween(LocalDateTime from, LocalDateTime to) throws Exception;
+
+    /** Paid and unpaid payment counts of one subscription, as returned by countStatuses. */
+    final class StatusCounts {
+        private final long paid;
+        private final long unpaid;
+
+        public StatusCounts(long paid, long unpaid) {
+            this.paid = paid;
+            this.unpaid = unpaid;
+        }
+
+        public long getPaid() { return paid; }
+        public long getUnpaid() { return unpaid; }
+
+        @Override
+        public String toString() {
+            return "StatusCounts{" +
+                    "paid=" + paid +
+                    ", unpaid=" + unpaid +
+                    '}';
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package dao;
+
+import java.time.YearMonth;
+
+/**
+ * Monthly revenue rollup: per subscription and month, the paid count/amount (by payment date)
+ * and the unpaid count (by due date). In PostgreSQL the payment_monthly_rollup table is kept
+ * current by triggers on payment (see db/migration/V5__payment_monthly_rollup.sql).
+ */
+public interface RevenueRollupDAO {
+
+    /**
+     * Sum, in cents, of the paid amounts of the months in [from, to).
+     * Same result as PaymentDAO.sumPaidCentsBetween over those whole months.
+     */
+    long sumPaidCents(YearMonth from, YearMonth to) throws Exception;
+
+    /**
+     * Recompute the rollup from the payment table, e.g. after restoring data with triggers disabled.
+     */
+    void rebuild() throws Exception;
+}
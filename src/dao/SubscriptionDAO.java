@@ -1,15 +1,45 @@
 package dao;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import entity.Subscription;
 
 public interface SubscriptionDAO {
     void create(Subscription s) throws Exception;
+
+    /**
+     * Load many subscriptions in one statement (PostgreSQL COPY), reading the iterator once.
+     * Either every row is inserted or none. Once the load has committed, the ACTIVE subscriptions
+     * it inserted are read back from the store and passed to activeChunks, at most chunkSize at a
+     * time, so the caller can act on them without keeping the loaded rows in memory.
+     *
+     * @return number of rows inserted
+     */
+    long bulkInsert(Iterator<Subscription> subscriptions, int chunkSize, ChunkHandler<Subscription> activeChunks) throws Exception;
     Optional<Subscription> findById(String id) throws Exception;
     List<Subscription> findAll() throws Exception;
+
+    /**
+     * Same rows and order as findAll(), read lazily through a server-side cursor.
+     * The stream holds a database connection until it is closed.
+     */
+    Stream<Subscription> streamAll() throws Exception;
+
+    /**
+     * Keyset page ordered by (service_name, id).
+     *
+     * @param after last subscription of the previous page, or null for the first page
+     */
+    List<Subscription> findPage(Subscription after, int limit) throws Exception;
     void update(Subscription s) throws Exception;
     void delete(String id) throws Exception;
     List<Subscription> findActive() throws Exception;
+
+    /** Receives the rows bulkInsert reads back, one chunk at a time. */
+    interface ChunkHandler<T> {
+        void handle(List<T> chunk) throws Exception;
+    }
 }
\ No newline at end of file
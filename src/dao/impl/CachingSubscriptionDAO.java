@@ -0,0 +1,210 @@
+package dao.impl;
+
+
+import dao.SubscriptionDAO;
+import entity.FixedSubscription;
+import entity.FlexibleSubscription;
+import entity.Subscription;
+import util.UnitOfWork;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of another SubscriptionDAO.
+ * - findById results are kept in a bounded LRU map and expire after ttlMillis
+ * - create/update/delete invalidate the affected id, and again once the surrounding
+ *   {@link UnitOfWork} completes, so a row reloaded before the commit is not kept
+ * - callers always receive a copy, so mutating a returned entity never changes the cache
+ * - rows read inside a {@link UnitOfWork} are not cached, since that transaction may still roll back
+ * List queries (findAll, streamAll, findPage, findActive) are passed straight to the delegate.
+ */
+public class CachingSubscriptionDAO implements SubscriptionDAO {
+
+    private final SubscriptionDAO delegate;
+    private final long ttlMillis;
+    private final Map<String, Entry> cache;
+
+    // bumped by every invalidation so a load that raced with a write is not cached
+    private long writeVersion;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public CachingSubscriptionDAO(SubscriptionDAO delegate, int maxSize, long ttlMillis) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be > 0");
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void create(Subscription s) throws Exception {
+        delegate.create(s);
+        invalidateNowAndAfterCompletion(s.getId());
+    }
+
+    @Override
+    public long bulkInsert(Iterator<Subscription> subscriptions, int chunkSize, ChunkHandler<Subscription> activeChunks)
+            throws Exception {
+        // only new ids are inserted, so nothing cached can be stale
+        return delegate.bulkInsert(subscriptions, chunkSize, activeChunks);
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) throws Exception {
+        long version;
+        synchronized (this) {
+            Entry e = cache.get(id);
+            if (e != null) {
+                if (System.currentTimeMillis() - e.loadedAtMillis < ttlMillis) {
+                    hits++;
+                    return Optional.of(copyOf(e.value));
+                }
+                cache.remove(id);
+                expirations++;
+            }
+            misses++;
+            version = writeVersion;
+        }
+        Optional<Subscription> loaded = delegate.findById(id);
+        if (loaded.isPresent() && !UnitOfWork.isActive()) {
+            synchronized (this) {
+                if (version == writeVersion) {
+                    cache.put(id, new Entry(copyOf(loaded.get()), System.currentTimeMillis()));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<Subscription> findAll() throws Exception {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() throws Exception {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Subscription> findPage(Subscription after, int limit) throws Exception {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public void update(Subscription s) throws Exception {
+        try {
+            delegate.update(s);
+        } finally {
+            invalidateNowAndAfterCompletion(s.getId());
+        }
+    }
+
+    @Override
+    public void delete(String id) throws Exception {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidateNowAndAfterCompletion(id);
+        }
+    }
+
+    @Override
+    public List<Subscription> findActive() throws Exception {
+        return delegate.findActive();
+    }
+
+    // the first invalidation stops loads already in flight from caching; until the transaction
+    // commits, other connections still read the old row, so it is dropped again afterwards
+    private void invalidateNowAndAfterCompletion(String id) {
+        invalidate(id);
+        if (UnitOfWork.isActive()) UnitOfWork.afterCompletion(() -> invalidate(id));
+    }
+
+    public synchronized void invalidate(String id) {
+        writeVersion++;
+        cache.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        writeVersion++;
+        cache.clear();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(cache.size(), hits, misses, evictions, expirations);
+    }
+
+    private static Subscription copyOf(Subscription s) {
+        if (s instanceof FixedSubscription) {
+            return new FixedSubscription(s.getId(), s.getServiceName(), s.getPriceCents(), s.getStartDate(),
+                    s.getEndDate(), s.getStatus(), ((FixedSubscription) s).getMonthsEngaged());
+        }
+        return new FlexibleSubscription(s.getId(), s.getServiceName(), s.getPriceCents(), s.getStartDate(),
+                s.getEndDate(), s.getStatus());
+    }
+
+    private static final class Entry {
+        final Subscription value;
+        final long loadedAtMillis;
+
+        Entry(Subscription value, long loadedAtMillis) {
+            this.value = value;
+            this.loadedAtMillis = loadedAtMillis;
+        }
+    }
+
+    /** Point-in-time cache counters. */
+    public static final class Stats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+
+        Stats(int size, long hits, long misses, long evictions, long expirations) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : hits / (double) lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" +
+                    "size=" + size +
+                    ", hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", expirations=" + expirations +
+                    ", hitRatio=" + String.format("%.2f", getHitRatio()) +
+                    '}';
+        }
+    }
+}
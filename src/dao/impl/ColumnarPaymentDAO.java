@@ -0,0 +1,168 @@
+package dao.impl;
+
+
+import dao.PaymentDAO;
+import entity.Payment;
+import entity.Pstatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * PaymentDAO over a {@link ColumnarStore}. Rows are kept as primitive columns and only
+ * turned into Payment objects for the rows a query returns; streamAll() materializes
+ * them one at a time as the stream is consumed.
+ */
+public class ColumnarPaymentDAO implements PaymentDAO {
+
+    private final ColumnarStore store;
+
+    public ColumnarPaymentDAO(ColumnarStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Payment p) {
+        store.insertPayments(Collections.singletonList(p), false);
+    }
+
+    @Override
+    public int createAllIfAbsent(List<Payment> payments) {
+        return store.insertPayments(payments, true);
+    }
+
+    @Override
+    public long bulkInsert(Iterator<Payment> payments) {
+        List<Payment> rows = new ArrayList<>();
+        payments.forEachRemaining(rows::add);
+        return store.mergePaymentsByDueDate(rows);
+    }
+
+    @Override
+    public void upsert(Payment p) {
+        store.upsertPayments(Collections.singletonList(p));
+    }
+
+    @Override
+    public int upsertAll(List<Payment> payments) {
+        return store.upsertPayments(payments);
+    }
+
+    @Override
+    public Optional<Payment> findById(String id) {
+        return Optional.ofNullable(store.findPayment(id));
+    }
+
+    @Override
+    public List<Payment> findBySubscription(String subscriptionId) {
+        return store.paymentsOfSubscription(subscriptionId, false, null, false, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Payment> findPageBySubscription(String subscriptionId, Payment after, int limit) {
+        return store.paymentsOfSubscription(subscriptionId, true, after == null ? null : after.getDueDate(), false, limit);
+    }
+
+    @Override
+    public List<Payment> findAll() {
+        return streamAll().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Payment> streamAll() {
+        Integer[] rows = Arrays.stream(store.livePaymentRows()).boxed().toArray(Integer[]::new);
+        Arrays.sort(rows, Comparator.comparingLong((Integer row) -> store.paymentDueEpoch(row)).reversed());
+        // rows deleted after the scan come back as null
+        return Arrays.stream(rows).map(store::materializePayment).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Stream<Payment> streamByDueDate(LocalDateTime from, LocalDateTime to, Pstatus status) {
+        // filter on the primitive columns first; only matching rows are boxed and materialized
+        Integer[] rows = Arrays.stream(store.paymentRowsByDueDate(from, to, status)).boxed().toArray(Integer[]::new);
+        Arrays.sort(rows, Comparator.comparingLong((Integer row) -> store.paymentDueEpoch(row)).thenComparing(row -> row));
+        return Arrays.stream(rows).map(store::materializePayment).filter(Objects::nonNull);
+    }
+
+    @Override
+    public void update(Payment p) {
+        store.updatePayment(p);
+    }
+
+    @Override
+    public void delete(String id) {
+        store.deletePayment(id);
+    }
+
+    @Override
+    public List<Payment> findUnpaidBySubscription(String subscriptionId) {
+        return store.paymentsOfSubscription(subscriptionId, true, null, true, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<LocalDateTime> findDueDates(String subscriptionId) {
+        return store.dueDatesOfSubscription(subscriptionId);
+    }
+
+    @Override
+    public StatusCounts countStatuses(String subscriptionId) {
+        return store.statusCountsOfSubscription(subscriptionId);
+    }
+
+    @Override
+    public List<Payment> findPageByStatus(Pstatus status, Payment after, int limit) {
+        Comparator<Payment> byDueId = Comparator.comparing(Payment::getDueDate).thenComparing(Payment::getId);
+        // only rows from the cursor's due date on are materialized
+        return Arrays.stream(store.paymentRowsByDueDate(after == null ? null : after.getDueDate(), null, status))
+                .mapToObj(store::materializePayment)
+                .filter(p -> p != null && (after == null || byDueId.compare(p, after) > 0))
+                .sorted(byDueId)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int markOverdue(LocalDateTime dueBefore, int limit) {
+        return store.markOverdue(dueBefore, limit);
+    }
+
+    @Override
+    public List<String> markPaid(Collection<String> ids, LocalDateTime paidAt) {
+        return store.markPaid(ids, paidAt);
+    }
+
+    @Override
+    public List<Payment> findLastPayments(int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        // keep the newest payment dates in a bounded min-heap; a missing date sorts last
+        Comparator<Integer> byPaid = Comparator.comparingLong(store::paymentPaidEpoch);
+        PriorityQueue<Integer> newest = new PriorityQueue<>(limit, byPaid);
+        for (int row : store.livePaymentRows()) {
+            if (newest.size() < limit) {
+                newest.add(row);
+            } else if (store.paymentPaidEpoch(row) > store.paymentPaidEpoch(newest.peek())) {
+                newest.poll();
+                newest.add(row);
+            }
+        }
+        List<Integer> rows = new ArrayList<>(newest);
+        rows.sort(byPaid.reversed());
+        return rows.stream().map(store::materializePayment).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public long sumPaidCentsBetween(LocalDateTime from, LocalDateTime to) {
+        return store.sumPaidCents(from, to);
+    }
+}
@@ -0,0 +1,806 @@
+package dao.impl;
+
+
+import dao.PaymentDAO;
+import entity.FixedSubscription;
+import entity.FlexibleSubscription;
+import entity.Payment;
+import entity.Pstatus;
+import entity.Sstatus;
+import entity.Subscription;
+import util.DatabaseException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory column store backing {@link ColumnarSubscriptionDAO} and {@link ColumnarPaymentDAO}.
+ *
+ * Every attribute lives in its own primitive array indexed by row number:
+ * - dates are epoch seconds (UTC) in long[] columns, so stored times have second precision
+ * - statuses are enum ordinals in byte[] columns (-1 marks a deleted row)
+ * - payment ids are UUIDs split into two longs (or Snowflake numbers in one); payments reference their subscription by row index
+ * - payment types are interned into a small dictionary and stored as one byte
+ * Secondary indexes: payment rows per subscription (kept sorted by due date, which also enforces the
+ * unique (subscription_id, due_date) key) and one bitset of payment rows per status.
+ *
+ * Entities are only materialized when returned to a caller. There are no transactions:
+ * multi-row writes validate first and then apply, so a failed batch leaves nothing behind.
+ */
+public class ColumnarStore {
+
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final byte DELETED = -1;
+    private static final Sstatus[] SSTATUS = Sstatus.values();
+    private static final Pstatus[] PSTATUS = Pstatus.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // --- subscription table ---
+    private int subCount;
+    private String[] subId = new String[16];
+    private String[] subName = new String[16];
+    private long[] subPriceCents = new long[16];
+    private long[] subStart = new long[16];
+    private long[] subEnd = new long[16];
+    private byte[] subStatus = new byte[16];
+    private int[] subMonths = new int[16]; // -1 for flexible subscriptions
+    private int[][] subPayments = new int[16][];
+    private int[] subPaymentCount = new int[16];
+    private final Map<String, Integer> subRowById = new HashMap<>();
+
+    // --- payment table ---
+    private int payCount;
+    private int payLive;
+    private long[] payIdHi = new long[1024];
+    private long[] payIdLo = new long[1024];
+    private int[] paySub = new int[1024];
+    private long[] payDue = new long[1024];
+    private long[] payPaid = new long[1024];
+    private byte[] payStatus = new byte[1024];
+    private byte[] payType = new byte[1024];
+    private final BitSet[] payRowsByStatus = new BitSet[PSTATUS.length];
+    private final IdIndex payRowById = new IdIndex();
+    // numeric ids (Snowflake) are kept in payIdLo with payIdHi = 0 and indexed separately from UUIDs
+    private final BitSet payNumericId = new BitSet();
+    private final IdIndex payRowByNumericId = new IdIndex();
+    // other ids that are not UUIDs (e.g. entered by hand) keep their text form here
+    private final Map<String, Integer> customIdRows = new HashMap<>();
+    private final Map<Integer, String> customIdByRow = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Byte> typeCodes = new HashMap<>();
+
+    public ColumnarStore() {
+        for (int i = 0; i < payRowsByStatus.length; i++) payRowsByStatus[i] = new BitSet();
+    }
+
+    // =====================================================================
+    // Subscriptions
+    // =====================================================================
+
+    /** Insert subscriptions atomically: a duplicate id rejects the whole batch. */
+    void insertSubscriptions(List<Subscription> subscriptions) {
+        lock.writeLock().lock();
+        try {
+            Set<String> batchIds = new HashSet<>();
+            for (Subscription s : subscriptions) {
+                if (subRowById.containsKey(s.getId()) || !batchIds.add(s.getId())) {
+                    throw new DatabaseException("Duplicate subscription id: " + s.getId());
+                }
+            }
+            ensureSubCapacity(subCount + subscriptions.size());
+            for (Subscription s : subscriptions) {
+                int row = subCount++;
+                subId[row] = s.getId();
+                subPayments[row] = new int[4];
+                subPaymentCount[row] = 0;
+                writeSubscription(row, s);
+                subRowById.put(s.getId(), row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void updateSubscription(Subscription s) {
+        lock.writeLock().lock();
+        try {
+            Integer row = subRowById.get(s.getId());
+            if (row != null) writeSubscription(row, s);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Deletes the subscription and, like ON DELETE CASCADE, all of its payments. */
+    void deleteSubscription(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = subRowById.remove(id);
+            if (row == null) return;
+            for (int i = 0; i < subPaymentCount[row]; i++) {
+                deletePaymentRow(subPayments[row][i], false);
+            }
+            subPayments[row] = null;
+            subPaymentCount[row] = 0;
+            subStatus[row] = DELETED;
+            subName[row] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Subscription findSubscription(String id) {
+        lock.readLock().lock();
+        try {
+            Integer row = subRowById.get(id);
+            return row == null ? null : materializeSubscription(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Live subscriptions, optionally only those with the given status, in row order. */
+    List<Subscription> subscriptions(Sstatus status) {
+        lock.readLock().lock();
+        try {
+            List<Subscription> list = new ArrayList<>();
+            for (int row = 0; row < subCount; row++) {
+                if (subStatus[row] == DELETED) continue;
+                if (status != null && subStatus[row] != status.ordinal()) continue;
+                list.add(materializeSubscription(row));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void writeSubscription(int row, Subscription s) {
+        subName[row] = s.getServiceName();
+        subPriceCents[row] = s.getPriceCents();
+        subStart[row] = toEpoch(s.getStartDate());
+        subEnd[row] = toEpoch(s.getEndDate());
+        subStatus[row] = (byte) s.getStatus().ordinal();
+        subMonths[row] = s instanceof FixedSubscription ? ((FixedSubscription) s).getMonthsEngaged() : -1;
+    }
+
+    private Subscription materializeSubscription(int row) {
+        Sstatus status = SSTATUS[subStatus[row]];
+        if (subMonths[row] >= 0) {
+            return new FixedSubscription(subId[row], subName[row], subPriceCents[row],
+                    fromEpoch(subStart[row]), fromEpoch(subEnd[row]), status, subMonths[row]);
+        }
+        return new FlexibleSubscription(subId[row], subName[row], subPriceCents[row],
+                fromEpoch(subStart[row]), fromEpoch(subEnd[row]), status);
+    }
+
+    private void ensureSubCapacity(int needed) {
+        if (needed <= subId.length) return;
+        int cap = Math.max(needed, subId.length * 2);
+        subId = Arrays.copyOf(subId, cap);
+        subName = Arrays.copyOf(subName, cap);
+        subPriceCents = Arrays.copyOf(subPriceCents, cap);
+        subStart = Arrays.copyOf(subStart, cap);
+        subEnd = Arrays.copyOf(subEnd, cap);
+        subStatus = Arrays.copyOf(subStatus, cap);
+        subMonths = Arrays.copyOf(subMonths, cap);
+        subPayments = Arrays.copyOf(subPayments, cap);
+        subPaymentCount = Arrays.copyOf(subPaymentCount, cap);
+    }
+
+    // =====================================================================
+    // Payments
+    // =====================================================================
+
+    /**
+     * Insert payments atomically.
+     *
+     * @param skipExistingDueDates true to silently skip rows whose (subscription, due date) exists,
+     *                             false to reject the whole batch instead
+     * @return number of rows inserted
+     */
+    int insertPayments(List<Payment> payments, boolean skipExistingDueDates) {
+        lock.writeLock().lock();
+        try {
+            // validate everything first so a rejected batch changes nothing
+            List<Payment> accepted = new ArrayList<>(payments.size());
+            Set<String> batchIds = new HashSet<>();
+            Map<Integer, Set<Long>> batchDue = new HashMap<>();
+            for (Payment p : payments) {
+                Integer sub = subRowById.get(p.getSubscriptionId());
+                if (sub == null) {
+                    throw new DatabaseException("Subscription not found for payment: " + p.getSubscriptionId());
+                }
+                if (paymentRow(p.getId()) >= 0 || !batchIds.add(p.getId())) {
+                    throw new DatabaseException("Duplicate payment id: " + p.getId());
+                }
+                long due = toEpoch(p.getDueDate());
+                boolean exists = findDueSlot(sub, due) >= 0
+                        || !batchDue.computeIfAbsent(sub, k -> new HashSet<>()).add(due);
+                if (exists) {
+                    if (skipExistingDueDates) continue;
+                    throw new DatabaseException("Duplicate due date " + p.getDueDate() + " for subscription " + p.getSubscriptionId());
+                }
+                accepted.add(p);
+            }
+            for (Payment p : accepted) {
+                insertPaymentRow(p, subRowById.get(p.getSubscriptionId()));
+            }
+            return accepted.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Update the payments whose id exists and insert the rest, atomically: the inserts are
+     * validated (and may reject the batch) before any row changes. The last row per id wins.
+     *
+     * @return number of rows inserted or updated
+     */
+    int upsertPayments(List<Payment> payments) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Payment> byId = new LinkedHashMap<>();
+            for (Payment p : payments) byId.put(p.getId(), p);
+            List<Payment> updates = new ArrayList<>();
+            List<Payment> inserts = new ArrayList<>();
+            for (Payment p : byId.values()) {
+                if (paymentRow(p.getId()) >= 0) updates.add(p); else inserts.add(p);
+            }
+            insertPayments(inserts, false);
+            for (Payment p : updates) updatePayment(p);
+            return byId.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bulk load keyed by (subscription, due date): a payment on a due date the subscription already
+     * has updates that row's payment date, type and status (keeping its id), the rest are inserted.
+     * The last row per due date wins; the inserts are validated before any row changes.
+     *
+     * @return number of rows inserted or updated
+     */
+    int mergePaymentsByDueDate(List<Payment> payments) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Payment> byDueDate = new LinkedHashMap<>();
+            for (Payment p : payments) byDueDate.put(p.getSubscriptionId() + '|' + toEpoch(p.getDueDate()), p);
+            List<Payment> inserts = new ArrayList<>();
+            Map<Integer, Payment> updates = new LinkedHashMap<>();
+            for (Payment p : byDueDate.values()) {
+                Integer sub = subRowById.get(p.getSubscriptionId());
+                int slot = sub == null ? -1 : findDueSlot(sub, toEpoch(p.getDueDate()));
+                if (slot >= 0) updates.put(subPayments[sub][slot], p); else inserts.add(p);
+            }
+            insertPayments(inserts, false);
+            for (Map.Entry<Integer, Payment> e : updates.entrySet()) setPaymentColumns(e.getKey(), e.getValue());
+            return byDueDate.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void updatePayment(Payment p) {
+        lock.writeLock().lock();
+        try {
+            int row = paymentRow(p.getId());
+            if (row < 0) return;
+            setPaymentColumns(row, p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setPaymentColumns(int row, Payment p) {
+        payRowsByStatus[payStatus[row]].clear(row);
+        payPaid[row] = toEpoch(p.getPaymentDate());
+        payType[row] = typeCode(p.getPaymentType());
+        payStatus[row] = (byte) p.getStatus().ordinal();
+        payRowsByStatus[payStatus[row]].set(row);
+    }
+
+    /**
+     * Set PAID on the payments with the given ids; rows already PAID keep their payment date.
+     * Returns the ids found, each once.
+     */
+    List<String> markPaid(Collection<String> ids, LocalDateTime paidAt) {
+        long paid = toEpoch(paidAt);
+        byte status = (byte) Pstatus.PAID.ordinal();
+        lock.writeLock().lock();
+        try {
+            List<String> found = new ArrayList<>(ids.size());
+            Set<String> seen = new HashSet<>();
+            for (String id : ids) {
+                int row = paymentRow(id);
+                if (row < 0 || !seen.add(id)) continue;
+                found.add(id);
+                if (payStatus[row] == status) continue;
+                payRowsByStatus[payStatus[row]].clear(row);
+                payPaid[row] = paid;
+                payStatus[row] = status;
+                payRowsByStatus[status].set(row);
+            }
+            return found;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move up to limit UNPAID payments due before the cutoff to OVERDUE, walking the UNPAID bitset.
+     */
+    int markOverdue(LocalDateTime dueBefore, int limit) {
+        long cutoff = toEpoch(dueBefore);
+        byte overdue = (byte) Pstatus.OVERDUE.ordinal();
+        lock.writeLock().lock();
+        try {
+            BitSet unpaid = payRowsByStatus[Pstatus.UNPAID.ordinal()];
+            int changed = 0;
+            for (int row = unpaid.nextSetBit(0); row >= 0 && changed < limit; row = unpaid.nextSetBit(row + 1)) {
+                if (payDue[row] >= cutoff) continue;
+                unpaid.clear(row);
+                payStatus[row] = overdue;
+                payRowsByStatus[overdue].set(row);
+                changed++;
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void deletePayment(String id) {
+        lock.writeLock().lock();
+        try {
+            int row = paymentRow(id);
+            if (row >= 0) deletePaymentRow(row, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Payment findPayment(String id) {
+        lock.readLock().lock();
+        try {
+            int row = paymentRow(id);
+            return row < 0 ? null : materializePayment(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Payments of one subscription ordered by due date, starting after the given due date/id
+     * (exclusive; null for the beginning), optionally restricted to rows that are not PAID.
+     */
+    List<Payment> paymentsOfSubscription(String subscriptionId, boolean ascending, LocalDateTime afterDue,
+                                         boolean unpaidOnly, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Payment> list = new ArrayList<>();
+            Integer sub = subRowById.get(subscriptionId);
+            if (sub == null) return list;
+            int[] rows = subPayments[sub];
+            int n = subPaymentCount[sub];
+            int from = 0;
+            if (afterDue != null) {
+                // due dates are unique per subscription, so the (due_date, id) cursor reduces to due_date
+                int slot = findDueSlot(sub, toEpoch(afterDue));
+                from = slot >= 0 ? slot + 1 : -slot - 1;
+            }
+            for (int i = from; i < n && list.size() < limit; i++) {
+                int row = rows[ascending ? i : n - 1 - i];
+                if (unpaidOnly && payStatus[row] == Pstatus.PAID.ordinal()) continue;
+                list.add(materializePayment(row));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Due dates of one subscription's payments in ascending order, read from the due date column only. */
+    List<LocalDateTime> dueDatesOfSubscription(String subscriptionId) {
+        lock.readLock().lock();
+        try {
+            List<LocalDateTime> list = new ArrayList<>();
+            Integer sub = subRowById.get(subscriptionId);
+            if (sub == null) return list;
+            for (int i = 0; i < subPaymentCount[sub]; i++) list.add(fromEpoch(payDue[subPayments[sub][i]]));
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** PAID and other payment counts of one subscription, from the status column only. */
+    PaymentDAO.StatusCounts statusCountsOfSubscription(String subscriptionId) {
+        lock.readLock().lock();
+        try {
+            Integer sub = subRowById.get(subscriptionId);
+            if (sub == null) return new PaymentDAO.StatusCounts(0, 0);
+            long paid = 0;
+            for (int i = 0; i < subPaymentCount[sub]; i++) {
+                if (PSTATUS[payStatus[subPayments[sub][i]]] == Pstatus.PAID) paid++;
+            }
+            return new PaymentDAO.StatusCounts(paid, subPaymentCount[sub] - paid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Row numbers of live payments, for full scans. */
+    int[] livePaymentRows() {
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[payLive];
+            int n = 0;
+            for (int row = 0; row < payCount; row++) {
+                if (payStatus[row] != DELETED) rows[n++] = row;
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rows of live payments with a due date in [from, to) and the given status (nulls = no filter).
+     * A status filter walks that status's bitset instead of the whole table.
+     */
+    int[] paymentRowsByDueDate(LocalDateTime from, LocalDateTime to, Pstatus status) {
+        long lo = from == null ? Long.MIN_VALUE : toEpoch(from);
+        long hi = to == null ? Long.MAX_VALUE : toEpoch(to);
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[status == null ? payLive : payRowsByStatus[status.ordinal()].cardinality()];
+            int n = 0;
+            if (status != null) {
+                BitSet candidates = payRowsByStatus[status.ordinal()];
+                for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                    if (payDue[row] >= lo && payDue[row] < hi) rows[n++] = row;
+                }
+            } else {
+                for (int row = 0; row < payCount; row++) {
+                    if (payStatus[row] != DELETED && payDue[row] >= lo && payDue[row] < hi) rows[n++] = row;
+                }
+            }
+            return Arrays.copyOf(rows, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Payment materializePayment(int row) {
+        lock.readLock().lock();
+        try {
+            if (payStatus[row] == DELETED) return null;
+            return new Payment(paymentId(row), fromEpoch(payDue[row]), fromEpoch(payPaid[row]), types.get(payType[row] & 0xFF),
+                    PSTATUS[payStatus[row]], subId[paySub[row]]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long paymentDueEpoch(int row) {
+        return payDue[row];
+    }
+
+    long paymentPaidEpoch(int row) {
+        return payPaid[row];
+    }
+
+    /**
+     * Sum of the subscription price of every payment whose payment date is in [from, to):
+     * one pass over two primitive columns.
+     */
+    long sumPaidCents(LocalDateTime from, LocalDateTime to) {
+        long lo = toEpoch(from);
+        long hi = toEpoch(to);
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            for (int row = 0; row < payCount; row++) {
+                long paid = payPaid[row];
+                if (paid == NULL_TIME || paid < lo || paid >= hi || payStatus[row] == DELETED) continue;
+                sum += subPriceCents[paySub[row]];
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.readLock().lock();
+        try {
+            int[] byStatus = new int[PSTATUS.length];
+            for (int i = 0; i < byStatus.length; i++) byStatus[i] = payRowsByStatus[i].cardinality();
+            return new Stats(subRowById.size(), payLive, byStatus, estimatedBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap used by the column arrays and indexes, in bytes.
+     */
+    private long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long perPaymentSlot = 8 + 8 + 4 + 8 + 8 + 1 + 1;      // id hi/lo, subscription, due, paid, status, type
+            long payments = payIdHi.length * perPaymentSlot + (payRowById.capacity() + payRowByNumericId.capacity()) * 4L;
+            long statusIndex = 0;
+            for (BitSet b : payRowsByStatus) statusIndex += b.size() / 8;
+            long perSub = 0;
+            for (int row = 0; row < subCount; row++) {
+                if (subPayments[row] != null) perSub += 16 + 4L * subPayments[row].length;
+            }
+            long subscriptions = subId.length * (8L + 8 + 8 + 8 + 8 + 1 + 4 + 8 + 4) + subRowById.size() * 64L;
+            return payments + statusIndex + perSub + subscriptions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insertPaymentRow(Payment p, int sub) {
+        ensurePayCapacity(payCount + 1);
+        int row = payCount++;
+        payLive++;
+        UUID uuid = parseUuid(p.getId());
+        if (uuid != null) {
+            payIdHi[row] = uuid.getMostSignificantBits();
+            payIdLo[row] = uuid.getLeastSignificantBits();
+            payRowById.add(row);
+        } else if (parseNumericId(p.getId()) >= 0) {
+            payIdHi[row] = 0;
+            payIdLo[row] = parseNumericId(p.getId());
+            payNumericId.set(row);
+            payRowByNumericId.add(row);
+        } else {
+            customIdRows.put(p.getId(), row);
+            customIdByRow.put(row, p.getId());
+        }
+        paySub[row] = sub;
+        payDue[row] = toEpoch(p.getDueDate());
+        payPaid[row] = toEpoch(p.getPaymentDate());
+        payType[row] = typeCode(p.getPaymentType());
+        payStatus[row] = (byte) p.getStatus().ordinal();
+        payRowsByStatus[payStatus[row]].set(row);
+
+        // keep the subscription's rows sorted by due date
+        int slot = -findDueSlot(sub, payDue[row]) - 1;
+        int n = subPaymentCount[sub];
+        if (n == subPayments[sub].length) subPayments[sub] = Arrays.copyOf(subPayments[sub], n * 2);
+        System.arraycopy(subPayments[sub], slot, subPayments[sub], slot + 1, n - slot);
+        subPayments[sub][slot] = row;
+        subPaymentCount[sub] = n + 1;
+    }
+
+    private void deletePaymentRow(int row, boolean unlinkFromSubscription) {
+        if (payStatus[row] == DELETED) return;
+        payRowsByStatus[payStatus[row]].clear(row);
+        String custom = customIdByRow.remove(row);
+        if (custom != null) {
+            customIdRows.remove(custom);
+        } else if (payNumericId.get(row)) {
+            payNumericId.clear(row);
+            payRowByNumericId.remove(0, payIdLo[row]);
+        } else {
+            payRowById.remove(payIdHi[row], payIdLo[row]);
+        }
+        if (unlinkFromSubscription) {
+            int sub = paySub[row];
+            int slot = findDueSlot(sub, payDue[row]);
+            int n = subPaymentCount[sub];
+            System.arraycopy(subPayments[sub], slot + 1, subPayments[sub], slot, n - slot - 1);
+            subPaymentCount[sub] = n - 1;
+        }
+        payStatus[row] = DELETED;
+        payLive--;
+    }
+
+    /** Binary search of a due date in the subscription's sorted rows; negative insertion point if absent. */
+    private int findDueSlot(int sub, long due) {
+        int[] rows = subPayments[sub];
+        int lo = 0;
+        int hi = subPaymentCount[sub] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = payDue[rows[mid]];
+            if (v < due) lo = mid + 1;
+            else if (v > due) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private String paymentId(int row) {
+        String custom = customIdByRow.get(row);
+        if (custom != null) return custom;
+        return payNumericId.get(row) ? Long.toString(payIdLo[row]) : new UUID(payIdHi[row], payIdLo[row]).toString();
+    }
+
+    private int paymentRow(String id) {
+        if (id == null) return -1;
+        UUID uuid = parseUuid(id);
+        if (uuid != null) return payRowById.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        long number = parseNumericId(id);
+        if (number >= 0) return payRowByNumericId.get(0, number);
+        Integer row = customIdRows.get(id);
+        return row == null ? -1 : row;
+    }
+
+    private byte typeCode(String type) {
+        Byte code = typeCodes.get(type);
+        if (code != null) return code;
+        if (types.size() == 256) throw new DatabaseException("Too many distinct payment types for the columnar store");
+        code = (byte) types.size();
+        types.add(type);
+        typeCodes.put(type, code);
+        return code;
+    }
+
+    private void ensurePayCapacity(int needed) {
+        if (needed <= payIdHi.length) return;
+        int cap = Math.max(needed, payIdHi.length * 2);
+        payIdHi = Arrays.copyOf(payIdHi, cap);
+        payIdLo = Arrays.copyOf(payIdLo, cap);
+        paySub = Arrays.copyOf(paySub, cap);
+        payDue = Arrays.copyOf(payDue, cap);
+        payPaid = Arrays.copyOf(payPaid, cap);
+        payStatus = Arrays.copyOf(payStatus, cap);
+        payType = Arrays.copyOf(payType, cap);
+    }
+
+    private static UUID parseUuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            // only canonical lower-case text round-trips exactly
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** The value of a non-negative decimal id in canonical form (no sign or leading zeros), else -1. */
+    private static long parseNumericId(String id) {
+        if (id == null || id.isEmpty() || id.length() > 19 || (id.length() > 1 && id.charAt(0) == '0')) return -1;
+        long value = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+            if (value < 0) return -1; // overflow
+        }
+        return value;
+    }
+
+    static long toEpoch(LocalDateTime t) {
+        return t == null ? NULL_TIME : t.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromEpoch(long epoch) {
+        return epoch == NULL_TIME ? null : LocalDateTime.ofEpochSecond(epoch, 0, ZoneOffset.UTC);
+    }
+
+    /** Point-in-time row counts and footprint of the store. */
+    public static final class Stats {
+        private final int subscriptions;
+        private final int payments;
+        private final int[] paymentsByStatus;
+        private final long estimatedBytes;
+
+        Stats(int subscriptions, int payments, int[] paymentsByStatus, long estimatedBytes) {
+            this.subscriptions = subscriptions;
+            this.payments = payments;
+            this.paymentsByStatus = paymentsByStatus;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public int getSubscriptions() { return subscriptions; }
+        public int getPayments() { return payments; }
+        public int getPayments(Pstatus status) { return paymentsByStatus[status.ordinal()]; }
+        public long getEstimatedBytes() { return estimatedBytes; }
+
+        @Override
+        public String toString() {
+            return "ColumnarStoreStats{" +
+                    "subscriptions=" + subscriptions +
+                    ", payments=" + payments +
+                    ", paid=" + getPayments(Pstatus.PAID) +
+                    ", unpaid=" + getPayments(Pstatus.UNPAID) +
+                    ", overdue=" + getPayments(Pstatus.OVERDUE) +
+                    ", estimatedMB=" + String.format("%.1f", estimatedBytes / (1024.0 * 1024.0)) +
+                    '}';
+        }
+    }
+
+    /**
+     * Open-addressing hash index from a payment id (two longs) to its row, linear probing with
+     * backward-shift deletion so no tombstones accumulate. Slots hold only row numbers; the keys
+     * are read from the payIdHi/payIdLo columns, so the index costs 4 bytes per slot.
+     */
+    private final class IdIndex {
+        private int[] slots = new int[2048]; // row + 1, 0 = empty slot
+        private int size;
+
+        int capacity() { return slots.length; }
+
+        int get(long h, long l) {
+            int mask = slots.length - 1;
+            for (int i = slot(h, l, mask); slots[i] != 0; i = (i + 1) & mask) {
+                int row = slots[i] - 1;
+                if (payIdHi[row] == h && payIdLo[row] == l) return row;
+            }
+            return -1;
+        }
+
+        /** Index a row whose id columns are already written. */
+        void add(int row) {
+            if ((size + 1) * 2 > slots.length) resize();
+            insert(slots, row);
+            size++;
+        }
+
+        void remove(long h, long l) {
+            int mask = slots.length - 1;
+            int i = slot(h, l, mask);
+            while (slots[i] != 0 && !(payIdHi[slots[i] - 1] == h && payIdLo[slots[i] - 1] == l)) i = (i + 1) & mask;
+            if (slots[i] == 0) return;
+            size--;
+            // shift following entries of the probe run back into the hole
+            int hole = i;
+            for (int j = (hole + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int row = slots[j] - 1;
+                int home = slot(payIdHi[row], payIdLo[row], mask);
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    slots[hole] = slots[j];
+                    hole = j;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private void insert(int[] table, int row) {
+            int mask = table.length - 1;
+            int i = slot(payIdHi[row], payIdLo[row], mask);
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = row + 1;
+        }
+
+        private void resize() {
+            int[] bigger = new int[slots.length * 2];
+            for (int s : slots) {
+                if (s != 0) insert(bigger, s - 1);
+            }
+            slots = bigger;
+        }
+
+        private int slot(long h, long l, int mask) {
+            long x = h ^ l;
+            x ^= x >>> 33;
+            x *= 0xff51afd7ed558ccdL;
+            x ^= x >>> 33;
+            return (int) x & mask;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dao.impl;
+
+
+import dao.SubscriptionDAO;
+import entity.Sstatus;
+import entity.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * SubscriptionDAO over a {@link ColumnarStore}. Pair it with a {@link ColumnarPaymentDAO}
+ * on the same store so payments can reference their subscription.
+ */
+public class ColumnarSubscriptionDAO implements SubscriptionDAO {
+
+    private static final Comparator<Subscription> BY_NAME_ID =
+            Comparator.comparing(Subscription::getServiceName).thenComparing(Subscription::getId);
+
+    private final ColumnarStore store;
+
+    public ColumnarSubscriptionDAO(ColumnarStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void create(Subscription s) {
+        store.insertSubscriptions(Collections.singletonList(s));
+    }
+
+    @Override
+    public long bulkInsert(Iterator<Subscription> subscriptions, int chunkSize, ChunkHandler<Subscription> activeChunks)
+            throws Exception {
+        // the whole store is in memory anyway; the rows are collected so a rejected batch changes nothing
+        List<Subscription> rows = new ArrayList<>();
+        subscriptions.forEachRemaining(rows::add);
+        store.insertSubscriptions(rows);
+        List<Subscription> chunk = new ArrayList<>(chunkSize);
+        for (Subscription s : rows) {
+            if (s.getStatus() != Sstatus.ACTIVE) continue;
+            chunk.add(s);
+            if (chunk.size() == chunkSize) {
+                activeChunks.handle(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) activeChunks.handle(chunk);
+        return rows.size();
+    }
+
+    @Override
+    public Optional<Subscription> findById(String id) {
+        return Optional.ofNullable(store.findSubscription(id));
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        List<Subscription> list = store.subscriptions(null);
+        list.sort(BY_NAME_ID);
+        return list;
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public List<Subscription> findPage(Subscription after, int limit) {
+        return store.subscriptions(null).stream()
+                .filter(s -> after == null || BY_NAME_ID.compare(s, after) > 0)
+                .sorted(BY_NAME_ID)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void update(Subscription s) {
+        store.updateSubscription(s);
+    }
+
+    @Override
+    public void delete(String id) {
+        store.deleteSubscription(id);
+    }
+
+    @Override
+    public List<Subscription> findActive() {
+        return store.subscriptions(Sstatus.ACTIVE);
+    }
+}
@@ -0,0 +1,81 @@
+package dao.impl;
+
+
+import util.DBConnection;
+import util.DatabaseException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily mapped query results backed by a PostgreSQL server-side cursor.
+ * The driver only uses a cursor when autocommit is off and a fetch size is set,
+ * so rows are fetched FETCH_SIZE at a time and memory stays constant.
+ *
+ * The returned stream holds a connection until it is closed: always use try-with-resources.
+ */
+final class JdbcStreams {
+
+    static final int FETCH_SIZE = 500;
+
+    interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private JdbcStreams() { /* utility class */ }
+
+    static <T> Stream<T> stream(String sql, Binder binder, RowMapper<T> mapper) throws Exception {
+        Connection conn = DBConnection.getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            conn.setAutoCommit(false);
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            binder.bind(ps);
+            rs = ps.executeQuery();
+        } catch (Exception e) {
+            closeAll(null, ps, conn);
+            throw e;
+        }
+
+        final PreparedStatement statement = ps;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) return false;
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new DatabaseException("Failed to read streamed row", e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> closeAll(rs, statement, conn));
+    }
+
+    private static void closeAll(ResultSet rs, PreparedStatement ps, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+        } catch (SQLException ignored) { }
+        try {
+            if (ps != null) ps.close();
+        } catch (SQLException ignored) { }
+        try {
+            // the pool rolls back the read-only transaction and restores autocommit
+            conn.close();
+        } catch (SQLException ignored) { }
+    }
+}
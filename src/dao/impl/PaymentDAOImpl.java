@@ -4,35 +4,167 @@ package dao.impl;
 
 import dao.PaymentDAO;
 import entity.*;
+import util.Csv;
 import util.DBConnection;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public class PaymentDAOImpl implements PaymentDAO {
 
+    // rows sent per unnest(...) statement in createAllIfAbsent and upsertAll
+    private static final int BATCH_SIZE = 500;
+
+    // column order read by mapRow
+    private static final String COLUMNS = "id, subscription_id, due_date, payment_date, payment_type, status";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM payment";
+
+    private static final String INSERT_SQL = "INSERT INTO payment(id, subscription_id, due_date, payment_date, payment_type, status) VALUES (?,?,?,?,?,?)";
+
+    // one statement per chunk: the rows travel as parallel arrays and conflicts on the
+    // unique (subscription_id, due_date) index are skipped by the database
+    private static final String INSERT_IF_ABSENT_SQL = "INSERT INTO payment(id, subscription_id, due_date, payment_date, payment_type, status) "
+            + "SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::timestamp[], ?::timestamp[], ?::varchar[], ?::varchar[]) "
+            + "ON CONFLICT (subscription_id, due_date) DO NOTHING";
+
+    private static final String UPSERT_SET = " ON CONFLICT (id) DO UPDATE SET payment_date = EXCLUDED.payment_date, "
+            + "payment_type = EXCLUDED.payment_type, status = EXCLUDED.status";
+
+    private static final String UPSERT_SQL = INSERT_SQL + UPSERT_SET;
+
+    private static final String UPSERT_ALL_SQL = "INSERT INTO payment(id, subscription_id, due_date, payment_date, payment_type, status) "
+            + "SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::timestamp[], ?::timestamp[], ?::varchar[], ?::varchar[])"
+            + UPSERT_SET;
+
+    // bulkInsert copies into a staging table dropped at commit, then merges it on the unique
+    // (subscription_id, due_date) index: a generated UNPAID row on the same due date takes the
+    // imported payment date, type and status. DISTINCT ON keeps the last row of the input per
+    // due date, by the sequence number bulkInsert writes into seq, as one INSERT may not update a row twice.
+    private static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE payment_import (LIKE payment INCLUDING DEFAULTS, "
+            + "seq BIGINT NOT NULL) ON COMMIT DROP";
+
+    private static final String COPY_STAGING_SQL = "COPY payment_import(seq, id, subscription_id, due_date, payment_date, payment_type, status) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MERGE_STAGING_SQL = "INSERT INTO payment(id, subscription_id, due_date, payment_date, payment_type, status) "
+            + "SELECT DISTINCT ON (subscription_id, due_date) " + COLUMNS + " FROM payment_import "
+            + "ORDER BY subscription_id, due_date, seq DESC "
+            + "ON CONFLICT (subscription_id, due_date) DO UPDATE SET payment_date = EXCLUDED.payment_date, "
+            + "payment_type = EXCLUDED.payment_type, status = EXCLUDED.status";
+
     @Override
     public void create(Payment p) throws Exception {
-        String sql = "INSERT INTO payment(id, subscription_id, due_date, payment_date, payment_type, status) VALUES (?,?,?,?,?,?)";
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, p.getId());
-            ps.setString(2, p.getSubscriptionId());
-            ps.setTimestamp(3, Timestamp.valueOf(p.getDueDate()));
-            if (p.getPaymentDate() != null) ps.setTimestamp(4, Timestamp.valueOf(p.getPaymentDate())); else ps.setNull(4, Types.TIMESTAMP);
-            ps.setString(5, p.getPaymentType());
-            ps.setString(6, p.getStatus().name());
+             PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            bindInsert(ps, p);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public int createAllIfAbsent(List<Payment> payments) throws Exception {
+        if (payments.isEmpty()) return 0;
+        int inserted = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_IF_ABSENT_SQL)) {
+                for (int from = 0; from < payments.size(); from += BATCH_SIZE) {
+                    bindArrays(conn, ps, payments.subList(from, Math.min(from + BATCH_SIZE, payments.size())));
+                    inserted += ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public long bulkInsert(Iterator<Payment> payments) throws Exception {
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute(CREATE_STAGING_SQL);
+                long[] seq = {0};
+                PgCopy.copyIn(conn, COPY_STAGING_SQL, payments, (line, p) -> {
+                    line.append(++seq[0]).append(',');
+                    Csv.appendField(line, p.getId());
+                    line.append(',');
+                    Csv.appendField(line, p.getSubscriptionId());
+                    line.append(',');
+                    Csv.appendField(line, PgCopy.timestamp(p.getDueDate()));
+                    line.append(',');
+                    Csv.appendField(line, PgCopy.timestamp(p.getPaymentDate()));
+                    line.append(',');
+                    Csv.appendField(line, p.getPaymentType());
+                    line.append(',').append(p.getStatus().name());
+                });
+                long merged = st.executeUpdate(MERGE_STAGING_SQL);
+                conn.commit();
+                return merged;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    @Override
+    public void upsert(Payment p) throws Exception {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            bindInsert(ps, p);
             ps.executeUpdate();
         }
     }
 
+    @Override
+    public int upsertAll(List<Payment> payments) throws Exception {
+        if (payments.isEmpty()) return 0;
+        // one statement may not touch the same row twice, so keep only the last row per id
+        Map<String, Payment> byId = new LinkedHashMap<>();
+        for (Payment p : payments) byId.put(p.getId(), p);
+        List<Payment> rows = new ArrayList<>(byId.values());
+        int written = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT_ALL_SQL)) {
+                for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                    bindArrays(conn, ps, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+                    written += ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return written;
+    }
+
     @Override
     public Optional<Payment> findById(String id) throws Exception {
-        String sql = "SELECT * FROM payment WHERE id = ?";
+        String sql = SELECT + " WHERE id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, id);
@@ -45,7 +177,7 @@ public class PaymentDAOImpl implements PaymentDAO {
 
     @Override
     public List<Payment> findBySubscription(String subscriptionId) throws Exception {
-        String sql = "SELECT * FROM payment WHERE subscription_id = ? ORDER BY due_date DESC";
+        String sql = SELECT + " WHERE subscription_id = ? ORDER BY due_date DESC";
         List<Payment> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -57,9 +189,31 @@ public class PaymentDAOImpl implements PaymentDAO {
         return list;
     }
 
+    @Override
+    public List<Payment> findPageBySubscription(String subscriptionId, Payment after, int limit) throws Exception {
+        String sql = after == null
+                ? SELECT + " WHERE subscription_id = ? ORDER BY due_date, id LIMIT ?"
+                : SELECT + " WHERE subscription_id = ? AND (due_date, id) > (?, ?) ORDER BY due_date, id LIMIT ?";
+        List<Payment> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setString(i++, subscriptionId);
+            if (after != null) {
+                ps.setTimestamp(i++, Timestamp.valueOf(after.getDueDate()));
+                ps.setString(i++, after.getId());
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
     @Override
     public List<Payment> findAll() throws Exception {
-        String sql = "SELECT * FROM payment ORDER BY due_date DESC";
+        String sql = SELECT + " ORDER BY due_date DESC";
         List<Payment> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
@@ -69,6 +223,27 @@ public class PaymentDAOImpl implements PaymentDAO {
         return list;
     }
 
+    @Override
+    public Stream<Payment> streamAll() throws Exception {
+        String sql = SELECT + " ORDER BY due_date DESC";
+        return JdbcStreams.stream(sql, ps -> { }, this::mapRow);
+    }
+
+    @Override
+    public Stream<Payment> streamByDueDate(LocalDateTime from, LocalDateTime to, Pstatus status) throws Exception {
+        StringBuilder sql = new StringBuilder(SELECT + " WHERE TRUE");
+        if (from != null) sql.append(" AND due_date >= ?");
+        if (to != null) sql.append(" AND due_date < ?");
+        if (status != null) sql.append(" AND status = ?");
+        sql.append(" ORDER BY due_date, id");
+        return JdbcStreams.stream(sql.toString(), ps -> {
+            int i = 1;
+            if (from != null) ps.setTimestamp(i++, Timestamp.valueOf(from));
+            if (to != null) ps.setTimestamp(i++, Timestamp.valueOf(to));
+            if (status != null) ps.setString(i, status.name());
+        }, this::mapRow);
+    }
+
     @Override
     public void update(Payment p) throws Exception {
         String sql = "UPDATE payment SET payment_date=?, payment_type=?, status=? WHERE id=?";
@@ -94,7 +269,7 @@ public class PaymentDAOImpl implements PaymentDAO {
 
     @Override
     public List<Payment> findUnpaidBySubscription(String subscriptionId) throws Exception {
-        String sql = "SELECT * FROM payment WHERE subscription_id = ? AND status <> ?";
+        String sql = SELECT + " WHERE subscription_id = ? AND status <> ?";
         List<Payment> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -107,9 +282,99 @@ public class PaymentDAOImpl implements PaymentDAO {
         return list;
     }
 
+    @Override
+    public List<LocalDateTime> findDueDates(String subscriptionId) throws Exception {
+        // index-only scan of ux_payment_subscription_due_date
+        String sql = "SELECT due_date FROM payment WHERE subscription_id = ? ORDER BY due_date";
+        List<LocalDateTime> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, subscriptionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(rs.getTimestamp(1).toLocalDateTime());
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public StatusCounts countStatuses(String subscriptionId) throws Exception {
+        // counted by the server from an index-only scan of idx_payment_subscription_status; one row comes back
+        String sql = "SELECT count(*) FILTER (WHERE status = ?), count(*) FILTER (WHERE status <> ?)"
+                + " FROM payment WHERE subscription_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, Pstatus.PAID.name());
+            ps.setString(2, Pstatus.PAID.name());
+            ps.setString(3, subscriptionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new StatusCounts(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    @Override
+    public List<Payment> findPageByStatus(Pstatus status, Payment after, int limit) throws Exception {
+        String sql = after == null
+                ? SELECT + " WHERE status = ? ORDER BY due_date, id LIMIT ?"
+                : SELECT + " WHERE status = ? AND (due_date, id) > (?, ?) ORDER BY due_date, id LIMIT ?";
+        List<Payment> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setString(i++, status.name());
+            if (after != null) {
+                ps.setTimestamp(i++, Timestamp.valueOf(after.getDueDate()));
+                ps.setString(i++, after.getId());
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int markOverdue(LocalDateTime dueBefore, int limit) throws Exception {
+        // the inner select walks idx_payment_status_due_date; SKIP LOCKED leaves rows that
+        // a payment is being recorded on (or another sweep holds) for the next chunk
+        String sql = "UPDATE payment SET status = ? WHERE id IN ("
+                + "SELECT id FROM payment WHERE status = ? AND due_date < ? ORDER BY due_date LIMIT ? FOR UPDATE SKIP LOCKED)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, Pstatus.OVERDUE.name());
+            ps.setString(2, Pstatus.UNPAID.name());
+            ps.setTimestamp(3, Timestamp.valueOf(dueBefore));
+            ps.setInt(4, limit);
+            return ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<String> markPaid(Collection<String> ids, LocalDateTime paidAt) throws Exception {
+        List<String> found = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) return found;
+        // the ids travel as one array parameter, so the statement text and plan are the same for any count
+        String sql = "UPDATE payment SET payment_date = CASE WHEN status = ? THEN payment_date ELSE ? END, status = ? "
+                + "WHERE id = ANY(?::uuid[]) RETURNING id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, Pstatus.PAID.name());
+            ps.setTimestamp(2, Timestamp.valueOf(paidAt));
+            ps.setString(3, Pstatus.PAID.name());
+            ps.setArray(4, conn.createArrayOf("varchar", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) found.add(rs.getString(1));
+            }
+        }
+        return found;
+    }
+
     @Override
     public List<Payment> findLastPayments(int limit) throws Exception {
-        String sql = "SELECT * FROM payment ORDER BY CASE WHEN payment_date IS NULL THEN 1 ELSE 0 END, payment_date DESC LIMIT ?";
+        String sql = SELECT + " ORDER BY payment_date DESC NULLS LAST LIMIT ?";
         List<Payment> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -121,13 +386,59 @@ public class PaymentDAOImpl implements PaymentDAO {
         return list;
     }
 
+    @Override
+    public long sumPaidCentsBetween(LocalDateTime from, LocalDateTime to) throws Exception {
+        String sql = "SELECT COALESCE(SUM(s.price_cents), 0)::bigint FROM payment p JOIN subscription s ON s.id = p.subscription_id "
+                + "WHERE p.payment_date >= ? AND p.payment_date < ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+    }
+
+    private void bindInsert(PreparedStatement ps, Payment p) throws SQLException {
+        ps.setString(1, p.getId());
+        ps.setString(2, p.getSubscriptionId());
+        ps.setTimestamp(3, Timestamp.valueOf(p.getDueDate()));
+        if (p.getPaymentDate() != null) ps.setTimestamp(4, Timestamp.valueOf(p.getPaymentDate())); else ps.setNull(4, Types.TIMESTAMP);
+        ps.setString(5, p.getPaymentType());
+        ps.setString(6, p.getStatus().name());
+    }
+
+    /** Bind the rows as the six parallel column arrays read by unnest(). */
+    private void bindArrays(Connection conn, PreparedStatement ps, List<Payment> chunk) throws SQLException {
+        int n = chunk.size();
+        String[] ids = new String[n], subscriptionIds = new String[n], dueDates = new String[n],
+                paymentDates = new String[n], types = new String[n], statuses = new String[n];
+        for (int i = 0; i < n; i++) {
+            Payment p = chunk.get(i);
+            ids[i] = p.getId();
+            subscriptionIds[i] = p.getSubscriptionId();
+            dueDates[i] = Timestamp.valueOf(p.getDueDate()).toString();
+            paymentDates[i] = p.getPaymentDate() == null ? null : Timestamp.valueOf(p.getPaymentDate()).toString();
+            types[i] = p.getPaymentType();
+            statuses[i] = p.getStatus().name();
+        }
+        ps.setArray(1, conn.createArrayOf("varchar", ids));
+        ps.setArray(2, conn.createArrayOf("varchar", subscriptionIds));
+        ps.setArray(3, conn.createArrayOf("varchar", dueDates));
+        ps.setArray(4, conn.createArrayOf("varchar", paymentDates));
+        ps.setArray(5, conn.createArrayOf("varchar", types));
+        ps.setArray(6, conn.createArrayOf("varchar", statuses));
+    }
+
     private Payment mapRow(ResultSet rs) throws SQLException {
-        String id = rs.getString("id");
-        String subscriptionId = rs.getString("subscription_id");
-        Timestamp tsDue = rs.getTimestamp("due_date");
-        Timestamp tsPay = rs.getTimestamp("payment_date");
-        String type = rs.getString("payment_type");
-        String statusStr = rs.getString("status");
+        // by position in COLUMNS: no per-row label lookup
+        String id = rs.getString(1);
+        String subscriptionId = rs.getString(2);
+        Timestamp tsDue = rs.getTimestamp(3);
+        Timestamp tsPay = rs.getTimestamp(4);
+        String type = rs.getString(5);
+        String statusStr = rs.getString(6);
         LocalDateTime due = tsDue.toLocalDateTime();
         LocalDateTime pay = tsPay == null ? null : tsPay.toLocalDateTime();
         return new Payment(id, due, pay, type, Pstatus.valueOf(statusStr), subscriptionId);
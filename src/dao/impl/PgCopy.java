@@ -0,0 +1,71 @@
+package dao.impl;
+
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import util.DBConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+/**
+ * Bulk loading through PostgreSQL COPY ... FROM STDIN (FORMAT csv).
+ * Rows are rendered as CSV into a buffer that is flushed to the server every BUFFER_CHARS,
+ * so memory stays constant however many rows the iterator yields. COPY is a single
+ * statement: if the iterator or the server fails, the copy is cancelled and no row is kept.
+ */
+final class PgCopy {
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    interface RowWriter<T> {
+        /** Append the row's fields, comma separated, without the line terminator. */
+        void write(StringBuilder line, T row);
+    }
+
+    private PgCopy() { /* utility class */ }
+
+    /**
+     * @param sql COPY statement, e.g. "COPY payment(id, ...) FROM STDIN WITH (FORMAT csv)"
+     * @return number of rows copied
+     */
+    static <T> long copyIn(String sql, Iterator<T> rows, RowWriter<T> writer) throws Exception {
+        try (Connection conn = DBConnection.getConnection()) {
+            return copyIn(conn, sql, rows, writer);
+        }
+    }
+
+    /**
+     * COPY on the caller's connection, e.g. into a temporary table of the caller's transaction.
+     */
+    static <T> long copyIn(Connection conn, String sql, Iterator<T> rows, RowWriter<T> writer) throws Exception {
+        CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            StringBuilder sb = new StringBuilder(BUFFER_CHARS + 1024);
+            while (rows.hasNext()) {
+                writer.write(sb, rows.next());
+                sb.append('\n');
+                if (sb.length() >= BUFFER_CHARS) flush(copy, sb);
+            }
+            flush(copy, sb);
+            return copy.endCopy();
+        } finally {
+            if (copy.isActive()) copy.cancelCopy();
+        }
+    }
+
+    static String timestamp(LocalDateTime t) {
+        return t == null ? null : Timestamp.valueOf(t).toString();
+    }
+
+    private static void flush(CopyIn copy, StringBuilder sb) throws SQLException {
+        if (sb.length() == 0) return;
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+}
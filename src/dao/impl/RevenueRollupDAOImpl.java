@@ -0,0 +1,37 @@
+package dao.impl;
+
+
+import dao.RevenueRollupDAO;
+import util.DBConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+
+
+public class RevenueRollupDAOImpl implements RevenueRollupDAO {
+
+    @Override
+    public long sumPaidCents(YearMonth from, YearMonth to) throws Exception {
+        String sql = "SELECT COALESCE(SUM(paid_amount), 0)::bigint FROM payment_monthly_rollup WHERE year_month >= ? AND year_month < ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(from.atDay(1)));
+            ps.setDate(2, Date.valueOf(to.atDay(1)));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        }
+    }
+
+    @Override
+    public void rebuild() throws Exception {
+        // the function locks payment against writers, so it must run in one transaction
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT rebuild_payment_monthly_rollup()")) {
+            ps.execute();
+        }
+    }
+}
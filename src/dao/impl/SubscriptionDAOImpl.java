@@ -3,25 +3,46 @@ package dao.impl;
 
 import dao.SubscriptionDAO;
 import entity.*;
+import util.Csv;
 import util.DBConnection;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public class SubscriptionDAOImpl implements SubscriptionDAO {
 
+    // column order read by mapRow
+    private static final String COLUMNS = "id, service_name, price_cents, start_date, end_date, status, type, months_engaged";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM subscription";
+
+    // bulkInsert copies into a session temporary table and inserts from it in one transaction; after
+    // the commit the table still lists exactly the new rows, which are read back in id order and then dropped
+    private static final String STAGING_TABLE = "subscription_import";
+
+    private static final String COPY_STAGING_SQL = "COPY " + STAGING_TABLE + "(" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_FROM_STAGING_SQL = "INSERT INTO subscription(" + COLUMNS + ") SELECT " + COLUMNS
+            + " FROM " + STAGING_TABLE;
+
+    private static final String STAGED_FIRST_SQL = "SELECT " + COLUMNS + " FROM " + STAGING_TABLE
+            + " WHERE status = ? ORDER BY id LIMIT ?";
+    private static final String STAGED_NEXT_SQL = "SELECT " + COLUMNS + " FROM " + STAGING_TABLE
+            + " WHERE status = ? AND id > ? ORDER BY id LIMIT ?";
+
     @Override
     public void create(Subscription s) throws Exception {
-        String sql = "INSERT INTO subscription(id, service_name, price, start_date, end_date, status, type, months_engaged) VALUES (?,?,?,?,?,?,?,?)";
+        String sql = "INSERT INTO subscription(id, service_name, price_cents, start_date, end_date, status, type, months_engaged) VALUES (?,?,?,?,?,?,?,?)";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, s.getId());
             ps.setString(2, s.getServiceName());
-            ps.setDouble(3, s.getPrice());
+            ps.setLong(3, s.getPriceCents());
             ps.setTimestamp(4, Timestamp.valueOf(s.getStartDate()));
             if (s.getEndDate() != null) ps.setTimestamp(5, Timestamp.valueOf(s.getEndDate())); else ps.setNull(5, Types.TIMESTAMP);
             ps.setString(6, s.getStatus().name());
@@ -35,9 +56,78 @@ public class SubscriptionDAOImpl implements SubscriptionDAO {
         }
     }
 
+    @Override
+    public long bulkInsert(Iterator<Subscription> subscriptions, int chunkSize, ChunkHandler<Subscription> activeChunks)
+            throws Exception {
+        try (Connection conn = DBConnection.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+                st.execute("CREATE TEMP TABLE " + STAGING_TABLE + " (LIKE subscription INCLUDING DEFAULTS)");
+            }
+            try {
+                long imported = copyAndInsert(conn, subscriptions);
+                readBackActive(conn, chunkSize, activeChunks);
+                return imported;
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+                }
+            }
+        }
+    }
+
+    private long copyAndInsert(Connection conn, Iterator<Subscription> subscriptions) throws Exception {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            PgCopy.copyIn(conn, COPY_STAGING_SQL, subscriptions, SubscriptionDAOImpl::writeCopyRow);
+            long imported = st.executeUpdate(INSERT_FROM_STAGING_SQL);
+            conn.commit();
+            return imported;
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void readBackActive(Connection conn, int chunkSize, ChunkHandler<Subscription> activeChunks) throws Exception {
+        String after = null;
+        while (true) {
+            List<Subscription> chunk = new ArrayList<>(chunkSize);
+            try (PreparedStatement ps = conn.prepareStatement(after == null ? STAGED_FIRST_SQL : STAGED_NEXT_SQL)) {
+                int i = 1;
+                ps.setString(i++, Sstatus.ACTIVE.name());
+                if (after != null) ps.setString(i++, after);
+                ps.setInt(i, chunkSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) chunk.add(mapRow(rs));
+                }
+            }
+            if (chunk.isEmpty()) return;
+            activeChunks.handle(chunk);
+            if (chunk.size() < chunkSize) return;
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    private static void writeCopyRow(StringBuilder line, Subscription s) {
+        Csv.appendField(line, s.getId());
+        line.append(',');
+        Csv.appendField(line, s.getServiceName());
+        line.append(',').append(s.getPriceCents()).append(',');
+        Csv.appendField(line, PgCopy.timestamp(s.getStartDate()));
+        line.append(',');
+        Csv.appendField(line, PgCopy.timestamp(s.getEndDate()));
+        line.append(',').append(s.getStatus().name());
+        line.append(',').append(s.getClass().getSimpleName()).append(',');
+        if (s instanceof FixedSubscription) line.append(((FixedSubscription) s).getMonthsEngaged());
+    }
+
     @Override
     public Optional<Subscription> findById(String id) throws Exception {
-        String sql = "SELECT * FROM subscription WHERE id = ?";
+        String sql = SELECT + " WHERE id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, id);
@@ -52,7 +142,7 @@ public class SubscriptionDAOImpl implements SubscriptionDAO {
 
     @Override
     public List<Subscription> findAll() throws Exception {
-        String sql = "SELECT * FROM subscription ORDER BY service_name";
+        String sql = SELECT + " ORDER BY service_name";
         List<Subscription> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
@@ -63,19 +153,50 @@ public class SubscriptionDAOImpl implements SubscriptionDAO {
     }
 
     @Override
-    public void update(Subscription s) throws Exception {
-        String sql = "UPDATE subscription SET service_name=?, price=?, start_date=?, end_date=?, status=?, type=?, months_engaged=? WHERE id=?";
-        try(Connection conn = DBConnection.getConnection();
-         PreparedStatement ps = conn.prepareStatement(sql);){
-
-            ps.setString(1, s.getServiceName());
-            ps.setDouble(2, s.getPrice());
-            ps.setTimestamp(3, Timestamp.valueOf(s.getEndDate()));
-            
-            if (s.getEndDate() != null) ps.setTimestamp(4, Timestamp.valueOf(s.getEndDate())); else ps.setNull(4, Types.TIMESTAMP); 
-
+    public Stream<Subscription> streamAll() throws Exception {
+        String sql = SELECT + " ORDER BY service_name";
+        return JdbcStreams.stream(sql, ps -> { }, this::mapRow);
+    }
 
+    @Override
+    public List<Subscription> findPage(Subscription after, int limit) throws Exception {
+        String sql = after == null
+                ? SELECT + " ORDER BY service_name, id LIMIT ?"
+                : SELECT + " WHERE (service_name, id) > (?, ?) ORDER BY service_name, id LIMIT ?";
+        List<Subscription> list = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (after != null) {
+                ps.setString(i++, after.getServiceName());
+                ps.setString(i++, after.getId());
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
 
+    @Override
+    public void update(Subscription s) throws Exception {
+        String sql = "UPDATE subscription SET service_name=?, price_cents=?, start_date=?, end_date=?, status=?, type=?, months_engaged=? WHERE id=?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, s.getServiceName());
+            ps.setLong(2, s.getPriceCents());
+            ps.setTimestamp(3, Timestamp.valueOf(s.getStartDate()));
+            if (s.getEndDate() != null) ps.setTimestamp(4, Timestamp.valueOf(s.getEndDate())); else ps.setNull(4, Types.TIMESTAMP);
+            ps.setString(5, s.getStatus().name());
+            ps.setString(6, s.getClass().getSimpleName());
+            if (s instanceof FixedSubscription) {
+                ps.setInt(7, ((FixedSubscription) s).getMonthsEngaged());
+            } else {
+                ps.setNull(7, Types.INTEGER);
+            }
+            ps.setString(8, s.getId());
+            ps.executeUpdate();
         }
     }
 
@@ -91,7 +212,7 @@ public class SubscriptionDAOImpl implements SubscriptionDAO {
 
     @Override
     public List<Subscription> findActive() throws Exception {
-        String sql = "SELECT * FROM subscription WHERE status = ?";
+        String sql = SELECT + " WHERE status = ?";
         List<Subscription> list = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -104,22 +225,23 @@ public class SubscriptionDAOImpl implements SubscriptionDAO {
     }
 
     private Subscription mapRow(ResultSet rs) throws SQLException {
-        String id = rs.getString("id");
-        String serviceName = rs.getString("service_name");
-        double price = rs.getDouble("price");
-        Timestamp tsStart = rs.getTimestamp("start_date");
-        Timestamp tsEnd = rs.getTimestamp("end_date");
-        String statusStr = rs.getString("status");
-        String type = rs.getString("type");
-        int monthsEngaged = rs.getInt("months_engaged");
+        // by position in COLUMNS: no per-row label lookup
+        String id = rs.getString(1);
+        String serviceName = rs.getString(2);
+        long priceCents = rs.getLong(3);
+        Timestamp tsStart = rs.getTimestamp(4);
+        Timestamp tsEnd = rs.getTimestamp(5);
+        String statusStr = rs.getString(6);
+        String type = rs.getString(7);
+        int monthsEngaged = rs.getInt(8);
         LocalDateTime start = tsStart.toLocalDateTime();
         LocalDateTime end = tsEnd == null ? null : tsEnd.toLocalDateTime();
         Sstatus status = Sstatus.valueOf(statusStr);
 
         if ("FixedSubscription".equals(type)) {
-            return new FixedSubscription(id, serviceName, price, start, end, status, monthsEngaged);
+            return new FixedSubscription(id, serviceName, priceCents, start, end, status, monthsEngaged);
         } else {
-            return new FlexibleSubscription(id, serviceName, price, start, end, status);
+            return new FlexibleSubscription(id, serviceName, priceCents, start, end, status);
         }
     }
 }
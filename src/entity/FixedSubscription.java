@@ -1,5 +1,7 @@
 package entity;
 
+import util.Money;
+
 import java.time.LocalDateTime;
 
 public class FixedSubscription extends Subscription {
@@ -9,8 +11,8 @@ public class FixedSubscription extends Subscription {
         super();
     }
 
-    public FixedSubscription(String id,String serviceName,double price,LocalDateTime startDate,LocalDateTime endDate,Sstatus status,int monthsEngaged) {
-        super(id, serviceName, price, startDate, endDate, status);
+    public FixedSubscription(String id,String serviceName,long priceCents,LocalDateTime startDate,LocalDateTime endDate,Sstatus status,int monthsEngaged) {
+        super(id, serviceName, priceCents, startDate, endDate, status);
         this.monthsEngaged = monthsEngaged;
     }
 
@@ -22,7 +24,7 @@ public class FixedSubscription extends Subscription {
         return "FixedSubscription{" +
                 "id='" + id + '\'' +
                 ", serviceName='" + serviceName + '\'' +
-                ", price=" + price +
+                ", price=" + Money.format(priceCents) +
                 ", startDate=" + startDate +
                 ", endDate=" + endDate +
                 ", status=" + status +
@@ -1,5 +1,7 @@
 package entity;
 
+import util.Money;
+
 import java.time.LocalDateTime;
 
 public class FlexibleSubscription extends Subscription {
@@ -8,8 +10,8 @@ public class FlexibleSubscription extends Subscription {
         super();
     }
 
-    public FlexibleSubscription(String id,String serviceName,double price,LocalDateTime startDate,LocalDateTime endDate,Sstatus status) {
-        super(id, serviceName, price, startDate, endDate, status);
+    public FlexibleSubscription(String id,String serviceName,long priceCents,LocalDateTime startDate,LocalDateTime endDate,Sstatus status) {
+        super(id, serviceName, priceCents, startDate, endDate, status);
     }
 
     @Override
@@ -17,7 +19,7 @@ public class FlexibleSubscription extends Subscription {
         return "FlexibleSubscription{" +
                 "id='" + id + '\'' +
                 ", serviceName='" + serviceName + '\'' +
-                ", price=" + price +
+                ", price=" + Money.format(priceCents) +
                 ", startDate=" + startDate +
                 ", endDate=" + endDate +
                 ", status=" + status +
@@ -1,8 +1,9 @@
 package entity;
 
+import util.Ids;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 
 public class Payment {
@@ -14,11 +15,11 @@ public class Payment {
     private String subscriptionId; // link to Subscription (1 side)
 
     public Payment() {
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.newId();
     }
 
     public Payment(String id,LocalDateTime dueDate,LocalDateTime paymentDate,String paymentType,Pstatus status,String subscriptionId) {
-        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
+        this.id = (id == null || id.trim().isEmpty()) ? Ids.newId() : id;
         this.dueDate = dueDate;
         this.paymentDate = paymentDate;
         this.paymentType = paymentType;
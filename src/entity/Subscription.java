@@ -1,30 +1,32 @@
 package entity;
 
+import util.Ids;
+import util.Money;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 public abstract class Subscription {
     protected String id;
     protected String serviceName;
-    protected double price;
+    protected long priceCents; // minor units, see util.Money
     protected LocalDateTime startDate;
     protected LocalDateTime endDate; // nullable
     protected Sstatus status;
 
     public Subscription() {
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.newId();
     }
 
     public Subscription(String id,
                         String serviceName,
-                        double price,
+                        long priceCents,
                         LocalDateTime startDate,
                         LocalDateTime endDate,
                         Sstatus status) {
-        this.id = (id == null || id.trim().isEmpty()) ? UUID.randomUUID().toString() : id;
+        this.id = (id == null || id.trim().isEmpty()) ? Ids.newId() : id;
         this.serviceName = serviceName;
-        this.price = price;
+        this.priceCents = priceCents;
         this.startDate = startDate;
         this.endDate = endDate;
         this.status = status;
@@ -36,8 +38,8 @@ public abstract class Subscription {
     public String getServiceName() { return serviceName; }
     public void setServiceName(String serviceName) { this.serviceName = serviceName; }
 
-    public double getPrice() { return price; }
-    public void setPrice(double price) { this.price = price; }
+    public long getPriceCents() { return priceCents; }
+    public void setPriceCents(long priceCents) { this.priceCents = priceCents; }
 
     public LocalDateTime getStartDate() { return startDate; }
     public void setStartDate(LocalDateTime startDate) { this.startDate = startDate; }
@@ -70,7 +72,7 @@ public abstract class Subscription {
         return "Subscription{" +
                 "id='" + id + '\'' +
                 ", serviceName='" + serviceName + '\'' +
-                ", price=" + price +
+                ", price=" + Money.format(priceCents) +
                 ", startDate=" + startDate +
                 ", endDate=" + endDate +
                 ", status=" + status +
@@ -0,0 +1,126 @@
+package serveses;
+
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs independent service operations concurrently, on virtual threads where the JVM has them
+ * (see util.VirtualThreads). At most getMaxInFlight() operations run at once, by default the
+ * connection pool size (system property concurrency.maxInFlight), so extra callers wait for a
+ * permit instead of timing out on a connection. Close it to stop the executor.
+ *
+ * The fan-out methods wait for permits of their own: call them directly, never from inside an
+ * operation passed to call() or submit().
+ */
+public interface ConcurrentService extends AutoCloseable {
+
+    /**
+     * Run the operation on the caller's thread once a permit is free.
+     */
+    <T> T call(Callable<T> operation) throws Exception;
+
+    /**
+     * Run the operation on its own thread once a permit is free.
+     */
+    <T> CompletableFuture<T> submit(Callable<T> operation);
+
+    /** Paid total in cents per subscription id, computed in parallel. */
+    Map<String, Long> totalPaidForSubscriptions(Collection<String> subscriptionIds) throws Exception;
+
+    /** Unpaid total in cents per subscription id, computed in parallel. */
+    Map<String, Long> totalUnpaidForSubscriptions(Collection<String> subscriptionIds) throws Exception;
+
+    /**
+     * Generate the monthly payments of each subscription, in parallel, one transaction per subscription.
+     *
+     * @return number of subscriptions processed
+     */
+    int generateMonthlyPayments(Collection<String> subscriptionIds) throws Exception;
+
+    /** The month, previous month and year totals and the active subscription count, queried concurrently. */
+    Report report(YearMonth month) throws Exception;
+
+    int getMaxInFlight();
+
+    Stats getStats();
+
+    @Override
+    void close();
+
+    /** Result of report(). Amounts are in cents. */
+    final class Report {
+        private final YearMonth month;
+        private final long paidForMonth;
+        private final long paidForPreviousMonth;
+        private final long paidForYear;
+        private final int activeSubscriptions;
+        private final long elapsedMillis;
+
+        public Report(YearMonth month, long paidForMonth, long paidForPreviousMonth, long paidForYear,
+                      int activeSubscriptions, long elapsedMillis) {
+            this.month = month;
+            this.paidForMonth = paidForMonth;
+            this.paidForPreviousMonth = paidForPreviousMonth;
+            this.paidForYear = paidForYear;
+            this.activeSubscriptions = activeSubscriptions;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public YearMonth getMonth() { return month; }
+        public long getPaidForMonth() { return paidForMonth; }
+        public long getPaidForPreviousMonth() { return paidForPreviousMonth; }
+        public long getPaidForYear() { return paidForYear; }
+        public int getActiveSubscriptions() { return activeSubscriptions; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "month=" + month +
+                    ", paidForMonth=" + paidForMonth +
+                    ", paidForPreviousMonth=" + paidForPreviousMonth +
+                    ", paidForYear=" + paidForYear +
+                    ", activeSubscriptions=" + activeSubscriptions +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+
+    /** Point-in-time load of the facade. */
+    final class Stats {
+        private final int maxInFlight;
+        private final int inFlight;
+        private final int waiting;
+        private final long completed;
+        private final boolean virtualThreads;
+
+        public Stats(int maxInFlight, int inFlight, int waiting, long completed, boolean virtualThreads) {
+            this.maxInFlight = maxInFlight;
+            this.inFlight = inFlight;
+            this.waiting = waiting;
+            this.completed = completed;
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getMaxInFlight() { return maxInFlight; }
+        public int getInFlight() { return inFlight; }
+        public int getWaiting() { return waiting; }
+        public long getCompleted() { return completed; }
+        public boolean isVirtualThreads() { return virtualThreads; }
+
+        @Override
+        public String toString() {
+            return "ConcurrentStats{" +
+                    "maxInFlight=" + maxInFlight +
+                    ", inFlight=" + inFlight +
+                    ", waiting=" + waiting +
+                    ", completed=" + completed +
+                    ", virtualThreads=" + virtualThreads +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package serveses;
+
+
+import entity.Pstatus;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Streaming payment exports for accounting. Rows are read through a cursor and written as they
+ * arrive, so memory use does not depend on the number of rows exported.
+ */
+public interface ExportService {
+
+    enum Format {
+        /** Header row then id,subscription_id,due_date,payment_date,payment_type,status. */
+        CSV,
+        /** One JSON object per line with the same fields. */
+        JSONL
+    }
+
+    /**
+     * Export payments with a due date in [from, to) and the given status, ordered by due date.
+     * Null bounds or status export everything. The file is written under a temporary name and
+     * renamed when complete, so a failed export never leaves a truncated file behind.
+     *
+     * @param gzip compress the output (add ".gz" to the file name yourself)
+     * @return number of payments written
+     */
+    long exportPayments(Path file, Format format, boolean gzip,
+                        LocalDateTime from, LocalDateTime to, Pstatus status) throws Exception;
+}
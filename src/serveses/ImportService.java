@@ -0,0 +1,66 @@
+package serveses;
+
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Bulk CSV import. Files start with a header row naming the columns (any order, names as in
+ * the database); rows failing validation are skipped and reported, valid rows are loaded in one COPY.
+ *
+ * Subscriptions: id (optional), service_name, price (e.g. 9.99), start_date, end_date (optional),
+ *                status (default ACTIVE), type (Fixed|Flexible), months_engaged (Fixed only)
+ * Payments:      id (optional), subscription_id, due_date, payment_date (optional),
+ *                payment_type, status
+ * Dates are YYYY-MM-DD or YYYY-MM-DDTHH:MM[:SS].
+ */
+public interface ImportService {
+
+    /**
+     * Import subscriptions, then generate the monthly payments of the imported active ones, chunk by
+     * chunk once the import has committed. If generation fails the subscriptions stay imported;
+     * generate-all completes their payments.
+     */
+    Result importSubscriptions(Path csv) throws Exception;
+
+    /**
+     * Import payments. A row on a due date its subscription already has (e.g. a generated UNPAID
+     * payment) updates that payment's date, type and status instead of failing the import.
+     */
+    Result importPayments(Path csv) throws Exception;
+
+    /** Outcome of one import. */
+    final class Result {
+        private final long imported;
+        private final long rejected;
+        private final List<String> errors;
+        private final long paymentsGenerated;
+        private final long elapsedMillis;
+
+        public Result(long imported, long rejected, List<String> errors, long paymentsGenerated, long elapsedMillis) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = errors;
+            this.paymentsGenerated = paymentsGenerated;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+
+        /** "line N: reason" for the first rejected rows. */
+        public List<String> getErrors() { return errors; }
+        public long getPaymentsGenerated() { return paymentsGenerated; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return "ImportResult{" +
+                    "imported=" + imported +
+                    ", rejected=" + rejected +
+                    ", paymentsGenerated=" + paymentsGenerated +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+}
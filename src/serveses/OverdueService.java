@@ -0,0 +1,55 @@
+package serveses;
+
+
+import entity.Payment;
+
+import java.util.List;
+
+/**
+ * Moves UNPAID payments past their due date to OVERDUE, so overdue lookups are a plain
+ * indexed read on status instead of a lateness check on every row.
+ */
+public interface OverdueService {
+
+    /**
+     * Mark every UNPAID payment due before now as OVERDUE, in bounded chunks of one short
+     * transaction each. Safe to run concurrently and to interrupt: the next run continues.
+     */
+    SweepResult sweep() throws Exception;
+
+    /**
+     * Keyset page of OVERDUE payments ordered by due date; pass the last row of the previous page (or null).
+     */
+    List<Payment> findOverduePage(Payment after, int limit) throws Exception;
+
+    /** Outcome of one sweep. */
+    final class SweepResult {
+        private final long updated;
+        private final int chunks;
+        private final long elapsedMillis;
+
+        public SweepResult(long updated, int chunks, long elapsedMillis) {
+            this.updated = updated;
+            this.chunks = chunks;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getUpdated() { return updated; }
+        public int getChunks() { return chunks; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? updated * 1000.0 : updated * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "SweepResult{" +
+                    "updated=" + updated +
+                    ", chunks=" + chunks +
+                    ", elapsedMillis=" + elapsedMillis +
+                    ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                    '}';
+        }
+    }
+}
@@ -3,22 +3,86 @@ package serveses;
 
 import entity.Payment;
 
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PaymentService {
+    /**
+     * Create the payment, or update it if its id exists, in one atomic statement. The status is
+     * PAID when a payment date is set, UNPAID otherwise.
+     */
     Payment recordPayment(Payment p) throws Exception;
+
+    /**
+     * recordPayment() for many payments in one transaction.
+     *
+     * @return number of payments inserted or updated
+     */
+    int recordPayments(List<Payment> payments) throws Exception;
     Optional<Payment> findById(String id) throws Exception;
     List<Payment> findBySubscription(String subscriptionId) throws Exception;
+
+    /**
+     * Keyset page ordered by due date; pass the last row of the previous page (or null).
+     */
+    List<Payment> findPageBySubscription(String subscriptionId, Payment after, int limit) throws Exception;
     List<Payment> findUnpaidBySubscription(String subscriptionId) throws Exception;
     List<Payment> findLastPayments(int limit) throws Exception;
 
-    double totalPaidForSubscription(String subscriptionId) throws Exception;
-    double totalUnpaidForSubscription(String subscriptionId) throws Exception;
-    double totalPaidForMonth(YearMonth month) throws Exception;
-    double totalPaidForYear(int year) throws Exception;
+    /**
+     * Lazily streamed payments; close the stream to release its connection.
+     */
+    Stream<Payment> streamAll() throws Exception;
+
+    // totals are in cents (see util.Money)
+    long totalPaidForSubscription(String subscriptionId) throws Exception;
+    long totalUnpaidForSubscription(String subscriptionId) throws Exception;
+    long totalPaidForMonth(YearMonth month) throws Exception;
+    long totalPaidForYear(int year) throws Exception;
+
+    /**
+     * Recompute the monthly revenue rollup behind the month/year totals from the payment table.
+     */
+    void rebuildRevenueRollup() throws Exception;
 
     void markPaymentAsPaid(String paymentId) throws Exception;
+
+    /**
+     * Mark many payments PAID with set-based updates of at most MARK_PAID_BATCH_SIZE ids each
+     * (system property payment.markPaidBatchSize), each committed on its own. Payments already
+     * PAID keep their payment date, so a failed run can simply be repeated.
+     *
+     * @return how many distinct payments were marked, and the ids that do not exist in input order
+     */
+    MarkPaidResult markPaymentsAsPaid(Collection<String> paymentIds, LocalDateTime paidAt) throws Exception;
     void delete(String paymentId) throws Exception;
+
+    /** Outcome of markPaymentsAsPaid. */
+    final class MarkPaidResult {
+        private final int marked;
+        private final List<String> missing;
+
+        public MarkPaidResult(int marked, List<String> missing) {
+            this.marked = marked;
+            this.missing = missing;
+        }
+
+        /** Distinct payments found, counted once however many spellings of the id were given. */
+        public int getMarked() { return marked; }
+
+        /** Ids that do not exist, as given. */
+        public List<String> getMissing() { return missing; }
+
+        @Override
+        public String toString() {
+            return "MarkPaidResult{" +
+                    "marked=" + marked +
+                    ", missing=" + missing.size() +
+                    '}';
+        }
+    }
 }
\ No newline at end of file
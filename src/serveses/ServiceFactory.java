@@ -0,0 +1,62 @@
+package serveses;
+
+import dao.DAOFactory;
+import serveses.impl.ExportServiceImpl;
+import serveses.impl.ImportServiceImpl;
+import serveses.impl.OverdueServiceImpl;
+import serveses.impl.PaymentServiceImpl;
+import serveses.impl.SubscriptionServiceImpl;
+import util.Metrics;
+
+/**
+ * Shared service instances used by the console and batch modes, built on the {@link DAOFactory}
+ * DAOs. Every service is wrapped with {@link Metrics#instrument} so each call is timed under
+ * "subscriptionService.*", "paymentService.*" and so on.
+ */
+public final class ServiceFactory {
+
+    private static SubscriptionService subscriptionService;
+    private static PaymentService paymentService;
+    private static ImportService importService;
+    private static ExportService exportService;
+    private static OverdueService overdueService;
+
+    private ServiceFactory() { /* utility class */ }
+
+    public static synchronized SubscriptionService subscriptionService() {
+        if (subscriptionService == null) {
+            subscriptionService = Metrics.instrument(SubscriptionService.class, new SubscriptionServiceImpl(), "subscriptionService");
+        }
+        return subscriptionService;
+    }
+
+    public static synchronized PaymentService paymentService() {
+        if (paymentService == null) {
+            paymentService = Metrics.instrument(PaymentService.class, new PaymentServiceImpl(), "paymentService");
+        }
+        return paymentService;
+    }
+
+    public static synchronized ImportService importService() {
+        if (importService == null) {
+            // generation after a subscription import goes through the shared, instrumented service
+            ImportService service = new ImportServiceImpl(DAOFactory.subscriptionDAO(), DAOFactory.paymentDAO(), subscriptionService());
+            importService = Metrics.instrument(ImportService.class, service, "importService");
+        }
+        return importService;
+    }
+
+    public static synchronized ExportService exportService() {
+        if (exportService == null) {
+            exportService = Metrics.instrument(ExportService.class, new ExportServiceImpl(), "exportService");
+        }
+        return exportService;
+    }
+
+    public static synchronized OverdueService overdueService() {
+        if (overdueService == null) {
+            overdueService = Metrics.instrument(OverdueService.class, new OverdueServiceImpl(), "overdueService");
+        }
+        return overdueService;
+    }
+}
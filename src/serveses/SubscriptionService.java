@@ -5,13 +5,40 @@ import entity.Subscription;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SubscriptionService {
     Subscription create(Subscription s) throws Exception;
     Optional<Subscription> findById(String id) throws Exception;
     List<Subscription> findAll() throws Exception;
+
+    /**
+     * Lazily streamed subscriptions; close the stream to release its connection.
+     */
+    Stream<Subscription> streamAll() throws Exception;
+
+    /**
+     * Keyset page ordered by service name; pass the last row of the previous page (or null).
+     */
+    List<Subscription> findPage(Subscription after, int limit) throws Exception;
     void update(Subscription s) throws Exception;
     void delete(String id) throws Exception;
     List<Subscription> findActive() throws Exception;
     void generateMonthlyPaymentsForSubscription(String subscriptionId) throws Exception;
+
+    /**
+     * Generate missing monthly payments for every ACTIVE subscription in parallel.
+     * Safe to re-run after a failure.
+     *
+     * @return number of payments created
+     */
+    int generateMonthlyPaymentsForAllActive() throws Exception;
+
+    /**
+     * Generate missing monthly payments for the given subscriptions (e.g. just imported),
+     * partitioned and run in parallel like generateMonthlyPaymentsForAllActive().
+     *
+     * @return number of payments created
+     */
+    int generateMonthlyPayments(List<Subscription> subscriptions) throws Exception;
 }
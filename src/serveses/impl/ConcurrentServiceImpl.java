@@ -0,0 +1,178 @@
+package serveses.impl;
+
+
+import serveses.ConcurrentService;
+import serveses.PaymentService;
+import serveses.SubscriptionService;
+import util.DBConnection;
+import util.DatabaseException;
+import util.Metrics;
+import util.VirtualThreads;
+
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrentService over the regular services. Every operation, whether called or submitted,
+ * holds one permit of a fair semaphore while it runs; each runs in its own thread, so UnitOfWork
+ * transactions of parallel operations never share a connection.
+ */
+public class ConcurrentServiceImpl implements ConcurrentService {
+
+    // operations running at once; more than the pool size would only queue inside the pool
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("concurrency.maxInFlight", DBConnection.POOL_MAX_SIZE);
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final SubscriptionService subscriptionService;
+    private final PaymentService paymentService;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final AtomicLong completed = new AtomicLong();
+    private final Metrics.Timer permitWait = Metrics.timer("concurrentService.permitWait");
+
+    public ConcurrentServiceImpl() {
+        this(new SubscriptionServiceImpl(), new PaymentServiceImpl());
+    }
+
+    public ConcurrentServiceImpl(SubscriptionService subscriptionService, PaymentService paymentService) {
+        this(subscriptionService, paymentService, MAX_IN_FLIGHT);
+    }
+
+    public ConcurrentServiceImpl(SubscriptionService subscriptionService, PaymentService paymentService, int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be > 0");
+        this.subscriptionService = subscriptionService;
+        this.paymentService = paymentService;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight, true);
+        this.executor = VirtualThreads.newExecutor("concurrent-service", maxInFlight);
+    }
+
+    @Override
+    public <T> T call(Callable<T> operation) throws Exception {
+        long start = System.nanoTime();
+        permits.acquire();
+        permitWait.record(System.nanoTime() - start);
+        try {
+            return operation.call();
+        } finally {
+            permits.release();
+            completed.incrementAndGet();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(call(operation));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> totalPaidForSubscriptions(Collection<String> subscriptionIds) throws Exception {
+        return forEachSubscription(subscriptionIds, paymentService::totalPaidForSubscription);
+    }
+
+    @Override
+    public Map<String, Long> totalUnpaidForSubscriptions(Collection<String> subscriptionIds) throws Exception {
+        return forEachSubscription(subscriptionIds, paymentService::totalUnpaidForSubscription);
+    }
+
+    @Override
+    public int generateMonthlyPayments(Collection<String> subscriptionIds) throws Exception {
+        return forEachSubscription(subscriptionIds, id -> {
+            subscriptionService.generateMonthlyPaymentsForSubscription(id);
+            return Boolean.TRUE;
+        }).size();
+    }
+
+    @Override
+    public Report report(YearMonth month) throws Exception {
+        long start = System.currentTimeMillis();
+        CompletableFuture<Long> paidForMonth = submit(() -> paymentService.totalPaidForMonth(month));
+        CompletableFuture<Long> paidForPreviousMonth = submit(() -> paymentService.totalPaidForMonth(month.minusMonths(1)));
+        CompletableFuture<Long> paidForYear = submit(() -> paymentService.totalPaidForYear(month.getYear()));
+        CompletableFuture<Integer> active = submit(() -> subscriptionService.findActive().size());
+        return new Report(month, await(paidForMonth), await(paidForPreviousMonth), await(paidForYear), await(active),
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public Stats getStats() {
+        return new Stats(maxInFlight, maxInFlight - permits.availablePermits(), permits.getQueueLength(),
+                completed.get(), VirtualThreads.isAvailable());
+    }
+
+    /**
+     * Stop accepting work and wait for the running operations to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface PerSubscription<T> {
+        T run(String subscriptionId) throws Exception;
+    }
+
+    /**
+     * Run the task for every distinct id in parallel and wait for all of them. If any failed, the
+     * others still complete and a DatabaseException carrying the first failure is thrown.
+     */
+    private <T> Map<String, T> forEachSubscription(Collection<String> subscriptionIds, PerSubscription<T> task) throws Exception {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String id : subscriptionIds) {
+            if (!futures.containsKey(id)) futures.put(id, submit(() -> task.run(id)));
+        }
+        Map<String, T> results = new LinkedHashMap<>();
+        int failed = 0;
+        Exception firstFailure = null;
+        for (Map.Entry<String, CompletableFuture<T>> e : futures.entrySet()) {
+            try {
+                results.put(e.getKey(), await(e.getValue()));
+            } catch (Exception ex) {
+                failed++;
+                if (firstFailure == null) firstFailure = ex;
+            }
+        }
+        if (failed > 0) {
+            throw new DatabaseException(failed + " of " + futures.size() + " subscriptions failed", firstFailure);
+        }
+        return results;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+}
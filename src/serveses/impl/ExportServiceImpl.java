@@ -0,0 +1,115 @@
+package serveses.impl;
+
+
+import dao.DAOFactory;
+import dao.PaymentDAO;
+import entity.Payment;
+import entity.Pstatus;
+import serveses.ExportService;
+import util.Csv;
+import util.Json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes PaymentDAO.streamByDueDate() to a file channel through one reused line buffer
+ * and a 64 KB writer buffer (plus gzip when asked).
+ */
+public class ExportServiceImpl implements ExportService {
+
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+    private static final String CSV_HEADER = "id,subscription_id,due_date,payment_date,payment_type,status";
+
+    private final PaymentDAO paymentDAO;
+
+    public ExportServiceImpl() {
+        this(DAOFactory.paymentDAO());
+    }
+
+    public ExportServiceImpl(PaymentDAO paymentDAO) {
+        this.paymentDAO = paymentDAO;
+    }
+
+    @Override
+    public long exportPayments(Path file, Format format, boolean gzip,
+                               LocalDateTime from, LocalDateTime to, Pstatus status) throws Exception {
+        Path target = file.toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".part");
+        long rows = 0;
+        try (Stream<Payment> payments = paymentDAO.streamByDueDate(from, to, status);
+             Writer out = open(tmp, gzip)) {
+            StringBuilder line = new StringBuilder(256);
+            if (format == Format.CSV) out.write(CSV_HEADER + "\n");
+            Iterator<Payment> it = payments.iterator();
+            while (it.hasNext()) {
+                line.setLength(0);
+                if (format == Format.CSV) appendCsv(line, it.next());
+                else appendJson(line, it.next());
+                line.append('\n');
+                out.append(line);
+                rows++;
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private static Writer open(Path file, boolean gzip) throws IOException {
+        OutputStream out = Channels.newOutputStream(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        try {
+            if (gzip) out = new GZIPOutputStream(out, WRITE_BUFFER_CHARS);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+    }
+
+    private static void appendCsv(StringBuilder line, Payment p) {
+        Csv.appendField(line, p.getId());
+        line.append(',');
+        Csv.appendField(line, p.getSubscriptionId());
+        line.append(',');
+        Csv.appendField(line, text(p.getDueDate()));
+        line.append(',');
+        Csv.appendField(line, text(p.getPaymentDate()));
+        line.append(',');
+        Csv.appendField(line, p.getPaymentType());
+        line.append(',');
+        Csv.appendField(line, p.getStatus() == null ? null : p.getStatus().name());
+    }
+
+    private static void appendJson(StringBuilder line, Payment p) {
+        line.append("{\"id\":").append(Json.quote(p.getId()))
+                .append(",\"subscription_id\":").append(Json.quote(p.getSubscriptionId()))
+                .append(",\"due_date\":").append(Json.quote(text(p.getDueDate())))
+                .append(",\"payment_date\":").append(Json.quote(text(p.getPaymentDate())))
+                .append(",\"payment_type\":").append(Json.quote(p.getPaymentType()))
+                .append(",\"status\":").append(Json.quote(p.getStatus() == null ? null : p.getStatus().name()))
+                .append('}');
+    }
+
+    private static String text(LocalDateTime t) {
+        return t == null ? null : t.toString();
+    }
+}
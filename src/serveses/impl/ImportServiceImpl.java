@@ -0,0 +1,216 @@
+package serveses.impl;
+
+
+import dao.DAOFactory;
+import dao.PaymentDAO;
+import dao.SubscriptionDAO;
+import entity.FixedSubscription;
+import entity.FlexibleSubscription;
+import entity.Payment;
+import entity.Pstatus;
+import entity.Sstatus;
+import entity.Subscription;
+import serveses.ImportService;
+import serveses.SubscriptionService;
+import util.Csv;
+import util.DateUtils;
+import util.Ids;
+import util.Money;
+import util.ValidationUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the CSV file straight into the DAO's bulkInsert: each row is parsed and validated
+ * as COPY asks for it, so only one row is in memory at a time. The payments of the new active
+ * subscriptions are generated once the load has committed, from chunks the DAO reads back.
+ */
+public class ImportServiceImpl implements ImportService {
+
+    // rejected rows beyond this are counted but not described
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // imported active subscriptions handed to payment generation at a time
+    private static final int GENERATION_CHUNK_SIZE = 1000;
+
+    private final SubscriptionDAO subscriptionDAO;
+    private final PaymentDAO paymentDAO;
+    private final SubscriptionService subscriptionService;
+
+    public ImportServiceImpl() {
+        this(DAOFactory.subscriptionDAO(), DAOFactory.paymentDAO(), new SubscriptionServiceImpl());
+    }
+
+    public ImportServiceImpl(SubscriptionDAO subscriptionDAO, PaymentDAO paymentDAO, SubscriptionService subscriptionService) {
+        this.subscriptionDAO = subscriptionDAO;
+        this.paymentDAO = paymentDAO;
+        this.subscriptionService = subscriptionService;
+    }
+
+    @Override
+    public Result importSubscriptions(Path csv) throws Exception {
+        long start = System.currentTimeMillis();
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            Rows<Subscription> rows = new Rows<>(new Csv.RecordReader(in), this::parseSubscription);
+            long[] generated = {0};
+            long imported = subscriptionDAO.bulkInsert(rows, GENERATION_CHUNK_SIZE,
+                    chunk -> generated[0] += subscriptionService.generateMonthlyPayments(chunk));
+            return new Result(imported, rows.rejected, rows.errors, generated[0], System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Result importPayments(Path csv) throws Exception {
+        long start = System.currentTimeMillis();
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            Rows<Payment> rows = new Rows<>(new Csv.RecordReader(in), this::parsePayment);
+            long imported = paymentDAO.bulkInsert(rows);
+            return new Result(imported, rows.rejected, rows.errors, 0, System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Subscription parseSubscription(Row row) {
+        String id = row.get("id");
+        String name = row.require("service_name");
+        String price = row.require("price");
+        long priceCents;
+        try {
+            priceCents = Money.parseCents(price);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid price: " + price);
+        }
+        LocalDateTime start = DateUtils.parseFlexible(row.require("start_date"));
+        String endText = row.get("end_date");
+        LocalDateTime end = endText == null ? null : DateUtils.parseFlexible(endText);
+        String statusText = row.get("status");
+        Sstatus status = statusText == null ? Sstatus.ACTIVE : Sstatus.valueOf(statusText.toUpperCase(Locale.ROOT));
+        String type = row.require("type").toLowerCase(Locale.ROOT);
+
+        Subscription s;
+        if (type.startsWith("fixed")) {
+            s = new FixedSubscription(id, name, priceCents, start, end, status, Integer.parseInt(row.require("months_engaged")));
+        } else if (type.startsWith("flexible")) {
+            s = new FlexibleSubscription(id, name, priceCents, start, end, status);
+        } else {
+            throw new IllegalArgumentException("type must be Fixed or Flexible");
+        }
+        ValidationUtils.validateSubscription(s);
+        s.setId(Ids.require(s.getId(), "Subscription"));
+        return s;
+    }
+
+    private Payment parsePayment(Row row) {
+        String paidText = row.get("payment_date");
+        Payment p = new Payment(row.get("id"),
+                DateUtils.parseFlexible(row.require("due_date")),
+                paidText == null ? null : DateUtils.parseFlexible(paidText),
+                row.require("payment_type"),
+                Pstatus.valueOf(row.require("status").toUpperCase(Locale.ROOT)),
+                row.require("subscription_id"));
+        ValidationUtils.validatePayment(p);
+        // canonical ids, as the services store them; a row whose id is not valid is rejected
+        p.setId(Ids.require(p.getId(), "Payment"));
+        p.setSubscriptionId(Ids.require(p.getSubscriptionId(), "Subscription"));
+        return p;
+    }
+
+    private interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    /** One CSV record addressed by header name. */
+    private static final class Row {
+        private final Map<String, Integer> columns;
+        private final List<String> fields;
+
+        Row(Map<String, Integer> columns, List<String> fields) {
+            this.columns = columns;
+            this.fields = fields;
+        }
+
+        /** Trimmed value, or null when the column is missing or blank. */
+        String get(String column) {
+            Integer i = columns.get(column);
+            if (i == null || i >= fields.size() || fields.get(i) == null) return null;
+            String v = fields.get(i).trim();
+            return v.isEmpty() ? null : v;
+        }
+
+        String require(String column) {
+            String v = get(column);
+            if (v == null) throw new IllegalArgumentException(column + " is required");
+            return v;
+        }
+    }
+
+    /**
+     * Iterator over the valid rows of a CSV file. Invalid rows are counted and skipped;
+     * I/O errors surface as UncheckedIOException, which aborts the COPY.
+     */
+    private static final class Rows<T> implements Iterator<T> {
+        private final Csv.RecordReader reader;
+        private final RowParser<T> parser;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private long rejected;
+        private T next;
+
+        Rows(Csv.RecordReader reader, RowParser<T> parser) throws IOException {
+            this.reader = reader;
+            this.parser = parser;
+            List<String> header = reader.next();
+            if (header == null) return;
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i) != null) columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                List<String> fields;
+                try {
+                    fields = reader.next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (fields == null) return false;
+                if (fields.size() == 1 && fields.get(0) == null) continue; // blank line
+                try {
+                    next = parser.parse(new Row(columns, fields));
+                } catch (RuntimeException e) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("line " + reader.getLineNumber() + ": " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            T row = next;
+            next = null;
+            return row;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package serveses.impl;
+
+
+import dao.DAOFactory;
+import dao.PaymentDAO;
+import entity.Payment;
+import entity.Pstatus;
+import serveses.OverdueService;
+import util.Ids;
+import util.Metrics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sweep metrics: "overdueSweep.chunk" timer, "overdueSweep.rows" counter and the
+ * "overdueSweep.last" gauge with the latest {@link SweepResult} (including rows per second).
+ */
+public class OverdueServiceImpl implements OverdueService {
+
+    // payments updated per statement; keeps each transaction and its row locks short
+    private static final int CHUNK_SIZE = 1000;
+
+    private static volatile SweepResult lastSweep;
+
+    static {
+        Metrics.gauge("overdueSweep.last", () -> lastSweep);
+    }
+
+    private final PaymentDAO paymentDAO;
+
+    public OverdueServiceImpl() {
+        this(DAOFactory.paymentDAO());
+    }
+
+    public OverdueServiceImpl(PaymentDAO paymentDAO) {
+        this.paymentDAO = paymentDAO;
+    }
+
+    @Override
+    public SweepResult sweep() throws Exception {
+        // one cutoff for the whole sweep so it terminates even while time moves on
+        LocalDateTime cutoff = LocalDateTime.now();
+        long start = System.nanoTime();
+        long updated = 0;
+        int chunks = 0;
+        int n;
+        do {
+            long chunkStart = System.nanoTime();
+            n = paymentDAO.markOverdue(cutoff, CHUNK_SIZE);
+            Metrics.timer("overdueSweep.chunk").record(System.nanoTime() - chunkStart);
+            Metrics.counter("overdueSweep.rows").add(n);
+            updated += n;
+            chunks++;
+        } while (n == CHUNK_SIZE);
+
+        SweepResult result = new SweepResult(updated, chunks, (System.nanoTime() - start) / 1_000_000);
+        lastSweep = result;
+        return result;
+    }
+
+    @Override
+    public List<Payment> findOverduePage(Payment after, int limit) throws Exception {
+        if (after != null) after.setId(Ids.require(after.getId(), "Payment"));
+        return paymentDAO.findPageByStatus(Pstatus.OVERDUE, after, limit);
+    }
+}
@@ -1,56 +1,103 @@
 package serveses.impl;
 
 
+import dao.DAOFactory;
 import dao.PaymentDAO;
+import dao.RevenueRollupDAO;
 import dao.SubscriptionDAO;
-import dao.impl.PaymentDAOImpl;
-import dao.impl.SubscriptionDAOImpl;
 import entity.Payment;
 import entity.Pstatus;
 import entity.Subscription;
 import serveses.PaymentService;
+import util.Ids;
+import util.UnitOfWork;
 
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Payment service implementing business logic.
  */
 public class PaymentServiceImpl implements PaymentService {
 
-    private final PaymentDAO paymentDAO = new PaymentDAOImpl();
-    private final SubscriptionDAO subscriptionDAO = new SubscriptionDAOImpl();
+    // ids per UPDATE ... WHERE id = ANY(?) statement in markPaymentsAsPaid
+    private static final int MARK_PAID_BATCH_SIZE = Integer.getInteger("payment.markPaidBatchSize", 1000);
+
+    static {
+        if (MARK_PAID_BATCH_SIZE <= 0) throw new IllegalArgumentException("payment.markPaidBatchSize must be > 0");
+    }
+
+    private final PaymentDAO paymentDAO;
+    private final SubscriptionDAO subscriptionDAO;
+    private final RevenueRollupDAO revenueRollupDAO;
+
+    public PaymentServiceImpl() {
+        this(DAOFactory.paymentDAO(), DAOFactory.subscriptionDAO(), DAOFactory.revenueRollupDAO());
+    }
+
+    public PaymentServiceImpl(PaymentDAO paymentDAO, SubscriptionDAO subscriptionDAO, RevenueRollupDAO revenueRollupDAO) {
+        this.paymentDAO = paymentDAO;
+        this.subscriptionDAO = subscriptionDAO;
+        this.revenueRollupDAO = revenueRollupDAO;
+    }
 
     @Override
     public Payment recordPayment(Payment p) throws Exception {
+        normalizeIds(p);
+        setStatusFromPaymentDate(p);
+        // insert or update in one statement: no lookup round trip, no race with a concurrent writer
+        paymentDAO.upsert(p);
+        return p;
+    }
+
+    @Override
+    public int recordPayments(List<Payment> payments) throws Exception {
+        for (Payment p : payments) {
+            // ids that differ only in case must collapse before the upsert dedupes them
+            normalizeIds(p);
+            setStatusFromPaymentDate(p);
+        }
+        return paymentDAO.upsertAll(payments);
+    }
+
+    private static void normalizeIds(Payment p) {
+        p.setId(Ids.require(p.getId(), "Payment"));
+        p.setSubscriptionId(Ids.require(p.getSubscriptionId(), "Subscription"));
+    }
+
+    private static void setStatusFromPaymentDate(Payment p) {
         // If paymentDate provided, set status PAID, else UNPAID
         if (p.getPaymentDate() != null) p.setStatus(Pstatus.PAID);
         else p.setStatus(Pstatus.UNPAID);
-        // Try to update existing payment if ID exists, otherwise create
-        if (p.getId() == null || p.getId().trim().isEmpty()) {
-            paymentDAO.create(p);
-        } else {
-            // if exists, update, else create
-            Optional<Payment> opt = paymentDAO.findById(p.getId());
-            if (opt.isPresent()) paymentDAO.update(p); else paymentDAO.create(p);
-        }
-        return p;
     }
 
     @Override
     public Optional<Payment> findById(String id) throws Exception {
-        return paymentDAO.findById(id);
+        return paymentDAO.findById(Ids.require(id, "Payment"));
     }
 
     @Override
     public List<Payment> findBySubscription(String subscriptionId) throws Exception {
-        return paymentDAO.findBySubscription(subscriptionId);
+        return paymentDAO.findBySubscription(Ids.require(subscriptionId, "Subscription"));
+    }
+
+    @Override
+    public List<Payment> findPageBySubscription(String subscriptionId, Payment after, int limit) throws Exception {
+        if (after != null) after.setId(Ids.require(after.getId(), "Payment"));
+        return paymentDAO.findPageBySubscription(Ids.require(subscriptionId, "Subscription"), after, limit);
     }
 
     @Override
     public List<Payment> findUnpaidBySubscription(String subscriptionId) throws Exception {
-        return paymentDAO.findUnpaidBySubscription(subscriptionId);
+        return paymentDAO.findUnpaidBySubscription(Ids.require(subscriptionId, "Subscription"));
     }
 
     @Override
@@ -59,68 +106,91 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    public double totalPaidForSubscription(String subscriptionId) throws Exception {
-        Optional<Subscription> opt = subscriptionDAO.findById(subscriptionId);
-        if (!opt.isPresent()) return 0.0;
-        double price = opt.get().getPrice();
-        return paymentDAO.findBySubscription(subscriptionId).stream()
-                .filter(p -> p.getStatus() == Pstatus.PAID)
-                .count() * price;
+    public Stream<Payment> streamAll() throws Exception {
+        return paymentDAO.streamAll();
     }
 
     @Override
-    public double totalUnpaidForSubscription(String subscriptionId) throws Exception {
-        Optional<Subscription> opt = subscriptionDAO.findById(subscriptionId);
-        if (!opt.isPresent()) return 0.0;
-        double price = opt.get().getPrice();
-        return paymentDAO.findUnpaidBySubscription(subscriptionId).stream()
-                .count() * price;
+    public long totalPaidForSubscription(String subscriptionId) throws Exception {
+        String key = Ids.require(subscriptionId, "Subscription");
+        return UnitOfWork.call(() -> {
+            Optional<Subscription> opt = subscriptionDAO.findById(key);
+            if (!opt.isPresent()) return 0L;
+            return Math.multiplyExact(paymentDAO.countStatuses(key).getPaid(), opt.get().getPriceCents());
+        });
     }
 
     @Override
-    public double totalPaidForMonth(YearMonth month) throws Exception {
-        return paymentDAO.findAll().stream()
-                .filter(p -> p.getPaymentDate() != null && YearMonth.from(p.getPaymentDate()).equals(month))
-                .mapToDouble(p -> {
-                    try {
-                        Optional<Subscription> s = subscriptionDAO.findById(p.getSubscriptionId());
-                        return s.map(Subscription::getPrice).orElse(0.0);
-                    } catch (Exception e) {
-                        return 0.0;
-                    }
-                })
-                .sum();
+    public long totalUnpaidForSubscription(String subscriptionId) throws Exception {
+        String key = Ids.require(subscriptionId, "Subscription");
+        return UnitOfWork.call(() -> {
+            Optional<Subscription> opt = subscriptionDAO.findById(key);
+            if (!opt.isPresent()) return 0L;
+            return Math.multiplyExact(paymentDAO.countStatuses(key).getUnpaid(), opt.get().getPriceCents());
+        });
     }
 
+    // month and year totals read the monthly rollup, one row per subscription and month
+
     @Override
-    public double totalPaidForYear(int year) throws Exception {
-        return paymentDAO.findAll().stream()
-                .filter(p -> p.getPaymentDate() != null && p.getPaymentDate().getYear() == year)
-                .mapToDouble(p -> {
-                    try {
-                        Optional<Subscription> s = subscriptionDAO.findById(p.getSubscriptionId());
-                        return s.map(Subscription::getPrice).orElse(0.0);
-                    } catch (Exception e) {
-                        return 0.0;
-                    }
-                })
-                .sum();
+    public long totalPaidForMonth(YearMonth month) throws Exception {
+        return revenueRollupDAO.sumPaidCents(month, month.plusMonths(1));
+    }
+
+    @Override
+    public long totalPaidForYear(int year) throws Exception {
+        YearMonth january = YearMonth.of(year, 1);
+        return revenueRollupDAO.sumPaidCents(january, january.plusYears(1));
+    }
+
+    @Override
+    public void rebuildRevenueRollup() throws Exception {
+        revenueRollupDAO.rebuild();
     }
 
     @Override
     public void markPaymentAsPaid(String paymentId) throws Exception {
-        Optional<Payment> opt = paymentDAO.findById(paymentId);
-        if (!opt.isPresent()) throw new IllegalArgumentException("Payment not found: " + paymentId);
-        Payment p = opt.get();
-        p.setPaymentDate(java.time.LocalDateTime.now());
-        p.setStatus(Pstatus.PAID);
-        paymentDAO.update(p);
+        String key = Ids.require(paymentId, "Payment");
+        UnitOfWork.run(() -> {
+            Optional<Payment> opt = paymentDAO.findById(key);
+            if (!opt.isPresent()) throw new IllegalArgumentException("Payment not found: " + paymentId);
+            Payment p = opt.get();
+            p.setPaymentDate(LocalDateTime.now());
+            p.setStatus(Pstatus.PAID);
+            paymentDAO.update(p);
+        });
+    }
+
+    @Override
+    public MarkPaidResult markPaymentsAsPaid(Collection<String> paymentIds, LocalDateTime paidAt) throws Exception {
+        Set<String> distinct = new LinkedHashSet<>(paymentIds);
+        // an id that cannot be stored cannot exist either; the database would reject the whole batch.
+        // The others are sent, and matched against RETURNING, in canonical form.
+        Set<String> keys = new LinkedHashSet<>();
+        for (String id : distinct) {
+            String key = Ids.normalize(id);
+            if (key != null) keys.add(key);
+        }
+        List<String> ids = new ArrayList<>(keys);
+        Set<String> found = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += MARK_PAID_BATCH_SIZE) {
+            found.addAll(paymentDAO.markPaid(ids.subList(from, Math.min(from + MARK_PAID_BATCH_SIZE, ids.size())), paidAt));
+        }
+        List<String> missing = new ArrayList<>();
+        for (String id : distinct) {
+            String key = Ids.normalize(id);
+            if (key == null || !found.contains(key)) missing.add(id);
+        }
+        return new MarkPaidResult(found.size(), missing);
     }
 
     @Override
     public void delete(String paymentId) throws Exception {
-        Optional<Payment> opt = paymentDAO.findById(paymentId);
-        if (!opt.isPresent()) throw new IllegalArgumentException("Payment not found: " + paymentId);
-        paymentDAO.delete(paymentId);
+        String key = Ids.require(paymentId, "Payment");
+        UnitOfWork.run(() -> {
+            Optional<Payment> opt = paymentDAO.findById(key);
+            if (!opt.isPresent()) throw new IllegalArgumentException("Payment not found: " + paymentId);
+            paymentDAO.delete(key);
+        });
     }
 }
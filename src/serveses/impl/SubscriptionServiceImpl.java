@@ -1,41 +1,66 @@
 package serveses.impl;
 
 
+import dao.DAOFactory;
 import dao.PaymentDAO;
 import dao.SubscriptionDAO;
-import dao.impl.PaymentDAOImpl;
-import dao.impl.SubscriptionDAOImpl;
 import entity.FixedSubscription;
 import entity.Payment;
 import entity.Pstatus;
 import entity.Subscription;
 import serveses.SubscriptionService;
+import util.DatabaseException;
 import util.DateUtils;
+import util.Ids;
+import util.UnitOfWork;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Service implementing subscription business logic.
  */
 public class SubscriptionServiceImpl implements SubscriptionService {
 
-    private final SubscriptionDAO subscriptionDAO = new SubscriptionDAOImpl();
-    private final PaymentDAO paymentDAO = new PaymentDAOImpl();
+    // bulk generation: subscriptions per transaction and number of parallel workers
+    private static final int PARTITION_SIZE = 200;
+    private static final int GENERATION_WORKERS = 4;
+
+    private final SubscriptionDAO subscriptionDAO;
+    private final PaymentDAO paymentDAO;
+
+    public SubscriptionServiceImpl() {
+        this(DAOFactory.subscriptionDAO(), DAOFactory.paymentDAO());
+    }
+
+    public SubscriptionServiceImpl(SubscriptionDAO subscriptionDAO, PaymentDAO paymentDAO) {
+        this.subscriptionDAO = subscriptionDAO;
+        this.paymentDAO = paymentDAO;
+    }
 
     @Override
     public Subscription create(Subscription s) throws Exception {
-        subscriptionDAO.create(s);
-        // automatically generate initial monthly payments
-        generateMonthlyPaymentsForSubscription(s.getId());
-        return s;
+        // subscription row and its initial monthly payments are committed together
+        normalizeId(s);
+        return UnitOfWork.call(() -> {
+            subscriptionDAO.create(s);
+            generateMonthlyPaymentsForSubscription(s.getId());
+            return s;
+        });
     }
 
     @Override
     public Optional<Subscription> findById(String id) throws Exception {
-        return subscriptionDAO.findById(id);
+        return subscriptionDAO.findById(Ids.require(id, "Subscription"));
     }
 
     @Override
@@ -43,14 +68,30 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         return subscriptionDAO.findAll();
     }
 
+    @Override
+    public Stream<Subscription> streamAll() throws Exception {
+        return subscriptionDAO.streamAll();
+    }
+
+    @Override
+    public List<Subscription> findPage(Subscription after, int limit) throws Exception {
+        if (after != null) after.setId(Ids.require(after.getId(), "Subscription"));
+        return subscriptionDAO.findPage(after, limit);
+    }
+
     @Override
     public void update(Subscription s) throws Exception {
+        normalizeId(s);
         subscriptionDAO.update(s);
     }
 
     @Override
     public void delete(String id) throws Exception {
-        subscriptionDAO.delete(id);
+        subscriptionDAO.delete(Ids.require(id, "Subscription"));
+    }
+
+    private static void normalizeId(Subscription s) {
+        s.setId(Ids.require(s.getId(), "Subscription"));
     }
 
     @Override
@@ -60,28 +101,93 @@ public class SubscriptionServiceImpl implements SubscriptionService {
 
     @Override
     public void generateMonthlyPaymentsForSubscription(String subscriptionId) throws Exception {
-        Optional<Subscription> opt = subscriptionDAO.findById(subscriptionId);
-        if (!opt.isPresent()) return;
-        Subscription s = opt.get();
+        // one transaction: only due dates missing from the index-only due date read are sent,
+        // and the unique index still skips any inserted concurrently
+        String key = Ids.require(subscriptionId, "Subscription");
+        UnitOfWork.run(() -> {
+            Optional<Subscription> opt = subscriptionDAO.findById(key);
+            if (!opt.isPresent()) return;
+            Set<LocalDateTime> existing = new HashSet<>(paymentDAO.findDueDates(key));
+            List<Payment> missing = new ArrayList<>();
+            for (Payment p : planSchedule(opt.get())) {
+                if (!existing.contains(p.getDueDate())) missing.add(p);
+            }
+            paymentDAO.createAllIfAbsent(missing);
+        });
+    }
+
+    /**
+     * Subscriptions are split into partitions of PARTITION_SIZE and handed to at most
+     * GENERATION_WORKERS threads; each partition is written in its own batched transaction.
+     * Already generated due dates are skipped by the unique (subscription_id, due_date) index,
+     * so after a crash the operation can simply be run again: committed partitions produce
+     * nothing new and the rest are completed.
+     */
+    @Override
+    public int generateMonthlyPaymentsForAllActive() throws Exception {
+        return generateMonthlyPayments(subscriptionDAO.findActive());
+    }
+
+    @Override
+    public int generateMonthlyPayments(List<Subscription> active) throws Exception {
+        if (active.isEmpty()) return 0;
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(GENERATION_WORKERS,
+                (active.size() + PARTITION_SIZE - 1) / PARTITION_SIZE));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int from = 0; from < active.size(); from += PARTITION_SIZE) {
+                List<Subscription> partition = active.subList(from, Math.min(from + PARTITION_SIZE, active.size()));
+                results.add(workers.submit(() -> generatePartition(partition)));
+            }
+
+            int created = 0;
+            int failed = 0;
+            Exception firstFailure = null;
+            for (Future<Integer> f : results) {
+                try {
+                    created += f.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    if (firstFailure == null) firstFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            if (failed > 0) {
+                throw new DatabaseException(failed + " of " + results.size() + " partitions failed ("
+                        + created + " payments committed); run the generation again to resume", firstFailure);
+            }
+            return created;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private int generatePartition(List<Subscription> partition) throws Exception {
+        List<Payment> schedule = new ArrayList<>();
+        for (Subscription s : partition) {
+            schedule.addAll(planSchedule(s));
+        }
+        return paymentDAO.createAllIfAbsent(schedule);
+    }
+
+    /**
+     * Build the full UNPAID monthly schedule of the subscription. A fixed subscription is
+     * limited to its first monthsEngaged due dates.
+     */
+    private List<Payment> planSchedule(Subscription s) {
         LocalDateTime start = s.getStartDate();
         LocalDateTime end = s.getEndDate() == null ? LocalDateTime.now().plusYears(1) : s.getEndDate();
 
         List<LocalDateTime> dates = DateUtils.generateMonthlyDates(start, end);
+        if (s instanceof FixedSubscription) {
+            int months = Math.max(0, ((FixedSubscription) s).getMonthsEngaged());
+            if (dates.size() > months) dates = dates.subList(0, months);
+        }
 
-        List<Payment> existing = paymentDAO.findBySubscription(s.getId());
-        List<LocalDateTime> existingDue = existing.stream().map(Payment::getDueDate).collect(Collectors.toList());
-
-        int count = 0;
+        List<Payment> schedule = new ArrayList<>(dates.size());
         for (LocalDateTime due : dates) {
-            if (existingDue.contains(due)) continue;
-            Payment p = new Payment(null, due, null, "auto", Pstatus.UNPAID, s.getId());
-            paymentDAO.create(p);
-            count++;
-            // if fixed subscription limit by monthsEngaged
-            if (s instanceof FixedSubscription) {
-                int months = ((FixedSubscription) s).getMonthsEngaged();
-                if (count >= months) break;
-            }
+            schedule.add(new Payment(null, due, null, "auto", Pstatus.UNPAID, s.getId()));
         }
+        return schedule;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,399 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small bounded JDBC connection pool used behind {@link DBConnection}.
+ * - at most maxSize physical connections are open at the same time
+ * - idle connections are reused LIFO and validated (Connection.isValid) on borrow
+ * - connections idle for longer than maxIdleMillis are closed by a background housekeeper
+ * - connections borrowed for longer than leakThresholdMillis are reported once on System.err
+ *   (0 disables this); with traceBorrowSites the report includes where the connection was borrowed
+ *
+ * Borrowed connections are proxies: close() returns the physical connection to the pool,
+ * so callers keep using try-with-resources exactly as with DriverManager connections.
+ */
+public final class ConnectionPool {
+
+    /** Opens a new physical connection. */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long maxIdleMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdMillis;
+    private final boolean traceBorrowSites;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int total;
+    private boolean closed;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory,
+                          int maxSize,
+                          long maxIdleMillis,
+                          long borrowTimeoutMillis,
+                          int validationTimeoutSeconds,
+                          long leakThresholdMillis,
+                          boolean traceBorrowSites) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be > 0");
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.maxIdleMillis = maxIdleMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.traceBorrowSites = traceBorrowSites && leakThresholdMillis > 0;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, (leakThresholdMillis > 0 ? Math.min(maxIdleMillis, leakThresholdMillis) : maxIdleMillis) / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public int getMaxSize() { return maxSize; }
+
+    /**
+     * Borrow a connection, waiting up to borrowTimeoutMillis when the pool is exhausted.
+     *
+     * @throws DatabaseException if no connection became available in time
+     */
+    public Connection borrow() throws SQLException {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        while (true) {
+            PooledConnection candidate = null;
+            boolean createNew = false;
+            lock.lock();
+            try {
+                while (candidate == null && !createNew) {
+                    if (closed) throw new DatabaseException("Connection pool is closed");
+                    candidate = idle.pollFirst();
+                    if (candidate == null && total < maxSize) {
+                        total++;
+                        createNew = true;
+                    }
+                    if (candidate == null && !createNew) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeoutCount.incrementAndGet();
+                            throw new DatabaseException("Timed out after " + borrowTimeoutMillis
+                                    + " ms waiting for a database connection (pool size " + maxSize + ")");
+                        }
+                        try {
+                            available.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new DatabaseException("Interrupted while waiting for a database connection", e);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (createNew) {
+                try {
+                    candidate = new PooledConnection(factory.create());
+                    createdCount.incrementAndGet();
+                } catch (SQLException | RuntimeException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - startNanos);
+            borrowCount.incrementAndGet();
+            return candidate.lend();
+        }
+    }
+
+    /**
+     * Close every idle connection and refuse further borrows.
+     * Connections still borrowed are closed when they are returned.
+     */
+    public void close() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                closeQuietly(pc);
+                total--;
+                destroyedCount.incrementAndGet();
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            int idleCount = idle.size();
+            return new Stats(total - idleCount, idleCount, maxSize,
+                    borrowCount.get(), createdCount.get(), destroyedCount.get(),
+                    timeoutCount.get(), leakCount.get(), totalWaitNanos.get(), maxWaitNanos.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- internals ---
+
+    private boolean isUsable(PooledConnection pc) {
+        try {
+            return !pc.physical.isClosed() && pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        boolean healthy;
+        try {
+            healthy = !pc.physical.isClosed();
+            if (healthy && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                pc.lastUsedMillis = System.currentTimeMillis();
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pc);
+    }
+
+    private void destroy(PooledConnection pc) {
+        closeQuietly(pc);
+        destroyedCount.incrementAndGet();
+        discardSlot();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        long prev;
+        do {
+            prev = maxWaitNanos.get();
+            if (nanos <= prev) return;
+        } while (!maxWaitNanos.compareAndSet(prev, nanos));
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastUsedMillis < maxIdleMillis) break;
+                it.remove();
+                closeQuietly(pc);
+                total--;
+                destroyedCount.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leakThresholdMillis <= 0) return;
+        for (PooledConnection pc : borrowed) {
+            if (!pc.leakReported && now - pc.borrowedAtMillis > leakThresholdMillis) {
+                pc.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for "
+                        + (now - pc.borrowedAtMillis) + " ms by thread " + pc.borrowerThread);
+                if (pc.borrowSite != null) pc.borrowSite.printStackTrace();
+            }
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) { }
+    }
+
+    /** One physical connection plus the bookkeeping for its current lease. */
+    private final class PooledConnection {
+        final Connection physical;
+        long lastUsedMillis = System.currentTimeMillis();
+        volatile long borrowedAtMillis;
+        volatile String borrowerThread;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lend() {
+            borrowedAtMillis = System.currentTimeMillis();
+            borrowerThread = Thread.currentThread().getName();
+            // filling in a stack trace on every borrow is too slow to leave on
+            borrowSite = traceBorrowSites ? new Exception("Connection borrowed here") : null;
+            leakReported = false;
+            borrowed.add(this);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /** Proxy handler for a single lease; close() hands the connection back to the pool. */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    if (returned) throw new SQLException("Connection is closed");
+                    try {
+                        return method.invoke(pc.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /** Point-in-time pool statistics. */
+    public static final class Stats {
+        private final int active;
+        private final int idle;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long timeoutCount;
+        private final long leakCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        Stats(int active, int idle, int maxSize, long borrowCount, long createdCount, long destroyedCount,
+              long timeoutCount, long leakCount, long totalWaitNanos, long maxWaitNanos) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.timeoutCount = timeoutCount;
+            this.leakCount = leakCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getMaxSize() { return maxSize; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getLeakCount() { return leakCount; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+
+        public double getAverageWaitMillis() {
+            return borrowCount == 0 ? 0.0 : totalWaitNanos / (double) borrowCount / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{" +
+                    "active=" + active +
+                    ", idle=" + idle +
+                    ", maxSize=" + maxSize +
+                    ", borrows=" + borrowCount +
+                    ", created=" + createdCount +
+                    ", destroyed=" + destroyedCount +
+                    ", timeouts=" + timeoutCount +
+                    ", leaks=" + leakCount +
+                    ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                    ", maxWaitMs=" + String.format("%.3f", maxWaitNanos / 1_000_000.0) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV support, compatible with PostgreSQL COPY ... (FORMAT csv):
+ * fields are separated by commas, quoted with double quotes when needed (a quote inside
+ * a quoted field is doubled), and an empty unquoted field means null while "" is an empty string.
+ */
+public final class Csv {
+
+    private Csv() { /* utility class */ }
+
+    /**
+     * Append one field; callers add the commas and the line terminator.
+     */
+    public static void appendField(StringBuilder sb, String value) {
+        if (value == null) return;
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Streaming record reader; quoted fields may span lines.
+     * Give it a buffered Reader, it reads one char at a time.
+     */
+    public static final class RecordReader {
+        private final Reader in;
+        private int line = 1;
+        private int recordLine;
+        private int pushedBack = -2;
+
+        public RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /** Line number where the last returned record started. */
+        public int getLineNumber() {
+            return recordLine;
+        }
+
+        /**
+         * Next record, or null at end of input. Unquoted empty fields are returned as null.
+         */
+        public List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = n;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        field.append((char) c);
+                    }
+                } else if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                    fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                    if (c == ',') {
+                        c = read();
+                        continue;
+                    }
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') pushedBack = n;
+                    }
+                    if (c != -1) line++;
+                    return fields;
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return in.read();
+        }
+    }
+}
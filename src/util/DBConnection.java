@@ -7,11 +7,21 @@ import java.sql.DriverManager;
 
 public class DBConnection {
     // --- Edit these values for your environment ---
-    private static final String JDBC_URL = "jdbc:postgresql://localhost:5432/subscriptions_db";
+    // stringtype=unspecified lets ids bound with setString be read as uuid by the server
+    private static final String JDBC_URL = "jdbc:postgresql://localhost:5432/subscriptions_db?stringtype=unspecified";
     private static final String JDBC_USER = "postgres";
     private static final String JDBC_PASSWORD = "1234";
     private static final String JDBC_DRIVER = "org.postgresql.Driver";
 
+    // --- Connection pool settings ---
+    public static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_MAX_IDLE_MILLIS = 5 * 60 * 1000L;
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = 30 * 1000L;
+    private static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = 60 * 1000L;
+    // stack trace of the borrower in leak reports; costs a stack walk per borrow, so off by default
+    private static final boolean POOL_LEAK_TRACE = Boolean.getBoolean("db.pool.leakTrace");
+
 
     static {
         try {
@@ -21,13 +31,54 @@ public class DBConnection {
         }
     }
 
+    private static final ConnectionPool POOL = new ConnectionPool(
+            () -> DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD),
+            POOL_MAX_SIZE,
+            POOL_MAX_IDLE_MILLIS,
+            POOL_BORROW_TIMEOUT_MILLIS,
+            POOL_VALIDATION_TIMEOUT_SECONDS,
+            POOL_LEAK_THRESHOLD_MILLIS,
+            POOL_LEAK_TRACE);
+
+    private static final Metrics.Timer BORROW_TIMER = Metrics.timer("db.getConnection");
+
+    static {
+        Metrics.gauge("db.pool", POOL::getStats);
+    }
+
     /**
-     * Get a new JDBC connection using the hardcoded configuration.
+     * Borrow a pooled JDBC connection using the hardcoded configuration.
+     * Closing the returned connection hands it back to the pool.
+     * Inside a {@link UnitOfWork} the unit's connection is returned instead.
      *
-     * @return a new Connection
+     * @return a pooled Connection
      * @throws Exception if connection fails
      */
     public static Connection getConnection() throws Exception {
-        return DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD);
+        if (UnitOfWork.isActive()) return UnitOfWork.participantConnection();
+        return borrow();
+    }
+
+    static Connection borrow() throws Exception {
+        long start = System.nanoTime();
+        try {
+            return POOL.borrow();
+        } finally {
+            BORROW_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Current pool statistics (active/idle counts, borrow wait times, leaks).
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
+
+    /**
+     * Close all pooled connections. Call once on application exit.
+     */
+    public static void shutdown() {
+        POOL.close();
     }
 }
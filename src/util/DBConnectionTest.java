@@ -45,6 +45,7 @@ public class DBConnectionTest {
                 }
             }
             System.out.println("DB connection test succeeded.");
+            System.out.println("Pool: " + DBConnection.getPoolStats());
         } catch (Exception e) {
             System.err.println("DB connection test failed: " + e.getMessage());
             e.printStackTrace();
@@ -1,7 +1,9 @@
 package util;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -62,4 +64,16 @@ public final class DateUtils {
     public static LocalDateTime nextMonthly(LocalDateTime date) {
         return date == null ? null : date.plusMonths(1);
     }
-}
\ No newline at end of file
+
+    /**
+     * Parse "YYYY-MM-DD", "YYYY-MM-DDTHH:MM[:SS[.f]]" or the same with a space instead of 'T'.
+     * A date without time means 00:00.
+     *
+     * @throws DateTimeParseException if the text matches none of these forms
+     */
+    public static LocalDateTime parseFlexible(String text) {
+        String s = text.trim();
+        if (s.length() == 10) return LocalDate.parse(s).atStartOfDay();
+        return LocalDateTime.parse(s.replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,16 @@
+package util;
+
+/**
+ * Source of ids for new subscriptions and payments; the configured one is reached through {@link Ids}.
+ */
+public interface IdGenerator {
+
+    String nextId();
+
+    /**
+     * True if every id is a canonical UUID string, which the PostgreSQL schema (uuid columns) requires.
+     */
+    default boolean producesUuids() {
+        return true;
+    }
+}
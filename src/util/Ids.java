@@ -0,0 +1,87 @@
+package util;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Ids for new entities. The generator is chosen with -Did.generator:
+ *  - uuidv7 (default)  time-ordered UUIDs, see {@link UuidV7IdGenerator}
+ *  - snowflake         64-bit time-ordered numbers, see {@link SnowflakeIdGenerator}; -Did.node sets
+ *                      this process's node number (0-1023). In-memory store only.
+ *  - random            random UUIDs (version 4), as before V9
+ * Tools and benchmarks can install another one with {@link #setGenerator(IdGenerator)}.
+ */
+public final class Ids {
+
+    public static final String GENERATOR_NAME = System.getProperty("id.generator", "uuidv7");
+
+    private static volatile IdGenerator generator = create(GENERATOR_NAME);
+
+    private Ids() { /* utility class */ }
+
+    public static String newId() {
+        return generator.nextId();
+    }
+
+    public static IdGenerator getGenerator() {
+        return generator;
+    }
+
+    public static void setGenerator(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    public static IdGenerator create(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "uuidv7": return new UuidV7IdGenerator();
+            case "snowflake": return new SnowflakeIdGenerator(Integer.getInteger("id.node", 0));
+            case "random": return () -> UUID.randomUUID().toString();
+            default: throw new AppException("Unknown id generator '" + name + "' (expected uuidv7, snowflake or random)");
+        }
+    }
+
+    /**
+     * Whether the id can be stored: a canonical UUID, or anything when the configured generator does
+     * not produce UUIDs (in-memory store).
+     */
+    public static boolean isValid(String id) {
+        return normalize(id) != null;
+    }
+
+    /**
+     * The id as it is stored and returned by the database: UUIDs in lower case, other ids unchanged
+     * when the configured generator does not produce UUIDs. Null when the id is not valid, so callers
+     * can answer "not found" without a query.
+     */
+    public static String normalize(String id) {
+        if (id == null) return null;
+        if (!generator.producesUuids()) return id;
+        return isUuid(id) ? id.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Normalized form of an id received from outside (console, batch file, CSV, paging cursor).
+     * Services call this at every entry point: the database compares and returns ids in canonical
+     * form, and an id that cannot be stored cannot exist, so no query is run for it.
+     *
+     * @param what entity name for the message, e.g. "Payment"
+     * @throws NotFoundException if the id is not valid
+     */
+    public static String require(String id, String what) {
+        String key = normalize(id);
+        if (key == null) throw new NotFoundException(what + " not found: " + id);
+        return key;
+    }
+
+    /**
+     * Whether the id is a UUID in its 8-4-4-4-12 hex form, in either case.
+     */
+    public static boolean isUuid(String id) {
+        if (id == null || id.length() != 36) return false;
+        try {
+            return UUID.fromString(id).toString().equalsIgnoreCase(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package util;
+
+/**
+ * Helpers for the hand-written JSON output (metrics snapshots, JSON Lines exports).
+ */
+public final class Json {
+
+    private Json() { /* utility class */ }
+
+    /**
+     * The string as a quoted JSON string literal, or null as the JSON literal null.
+     */
+    public static String quote(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
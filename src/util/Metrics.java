@@ -0,0 +1,250 @@
+package util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Process-wide metrics registry: counters, latency timers (with percentiles from {@link Histogram}),
+ * value histograms and gauges, all addressed by dotted names such as "paymentDAO.findAll".
+ *
+ * {@link #instrument} wraps any interface implementation so every call is timed and the
+ * number of rows it returned is recorded, which is how the DAOs and services are measured.
+ */
+public final class Metrics {
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<?>> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() { /* utility class */ }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Register a value that is read only when a snapshot is taken (e.g. pool or cache statistics).
+     * In the JSON snapshot a statistics object becomes a nested object of its numeric and boolean
+     * getters, e.g. "db.pool":{"active":2,"idle":8,...}.
+     * Registering a name again replaces the earlier gauge, so register from whatever owns the single
+     * instance being observed (a factory, or the main class), never from a constructor.
+     */
+    public static void gauge(String name, Supplier<?> value) {
+        GAUGES.put(name, value);
+    }
+
+    /**
+     * Wrap target so that each interface method call records:
+     * - "prefix.method" timer (errors are counted in "prefix.method.errors")
+     * - "prefix.method.rows" histogram for methods returning a Collection, Optional or Stream
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T instrument(Class<T> iface, T target, String prefix) {
+        return (T) Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            String name = prefix + "." + method.getName();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                counter(name + ".errors").increment();
+                throw e.getCause();
+            } finally {
+                timer(name).record(System.nanoTime() - start);
+            }
+            return recordRows(name + ".rows", result);
+        });
+    }
+
+    private static Object recordRows(String name, Object result) {
+        if (result instanceof Collection) {
+            histogram(name).record(((Collection<?>) result).size());
+        } else if (result instanceof Optional) {
+            histogram(name).record(((Optional<?>) result).isPresent() ? 1 : 0);
+        } else if (result instanceof Stream) {
+            // rows are only known once the stream is consumed
+            LongAdder rows = new LongAdder();
+            Histogram h = histogram(name);
+            return ((Stream<?>) result).peek(row -> rows.increment()).onClose(() -> h.record(rows.sum()));
+        }
+        return result;
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        TIMERS.values().forEach(Timer::reset);
+        HISTOGRAMS.values().forEach(Histogram::reset);
+    }
+
+    /**
+     * Human readable snapshot, one metric per line, sorted by name.
+     */
+    public static String snapshotText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-52s %8s %10s %10s %10s %10s %10s%n", "Timer (ms)", "count", "mean", "p50", "p95", "p99", "max"));
+        for (Map.Entry<String, Timer> e : new TreeMap<>(TIMERS).entrySet()) {
+            Histogram h = e.getValue().histogram;
+            sb.append(String.format("%-52s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", e.getKey(), h.getCount(),
+                    millis(h.getMean()), millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(95)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getMax())));
+        }
+        if (!HISTOGRAMS.isEmpty()) {
+            sb.append(String.format("%n%-52s %8s %10s %10s %10s %10s %10s%n", "Histogram", "count", "mean", "p50", "p95", "p99", "max"));
+            for (Map.Entry<String, Histogram> e : new TreeMap<>(HISTOGRAMS).entrySet()) {
+                Histogram h = e.getValue();
+                sb.append(String.format("%-52s %8d %10.1f %10d %10d %10d %10d%n", e.getKey(), h.getCount(), h.getMean(),
+                        h.getValueAtPercentile(50), h.getValueAtPercentile(95), h.getValueAtPercentile(99), h.getMax()));
+            }
+        }
+        if (!COUNTERS.isEmpty()) {
+            sb.append(String.format("%n%-52s %8s%n", "Counter", "value"));
+            for (Map.Entry<String, Counter> e : new TreeMap<>(COUNTERS).entrySet()) {
+                sb.append(String.format("%-52s %8d%n", e.getKey(), e.getValue().get()));
+            }
+        }
+        if (!GAUGES.isEmpty()) {
+            sb.append(String.format("%nGauges%n"));
+            for (Map.Entry<String, Supplier<?>> e : new TreeMap<>(GAUGES).entrySet()) {
+                sb.append(e.getKey()).append(": ").append(e.getValue().get()).append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * JSON snapshot for dashboards. Timer values are in nanoseconds.
+     */
+    public static String snapshotJson() {
+        StringBuilder sb = new StringBuilder("{\"timestamp\":\"").append(Instant.now()).append("\",\"timers\":{");
+        String sep = "";
+        for (Map.Entry<String, Timer> e : new TreeMap<>(TIMERS).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':');
+            appendHistogram(sb, e.getValue().histogram);
+            sep = ",";
+        }
+        sb.append("},\"histograms\":{");
+        sep = "";
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':');
+            appendHistogram(sb, e.getValue());
+            sep = ",";
+        }
+        sb.append("},\"counters\":{");
+        sep = "";
+        for (Map.Entry<String, Counter> e : new TreeMap<>(COUNTERS).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':').append(e.getValue().get());
+            sep = ",";
+        }
+        sb.append("},\"gauges\":{");
+        sep = "";
+        for (Map.Entry<String, Supplier<?>> e : new TreeMap<>(GAUGES).entrySet()) {
+            sb.append(sep).append(Json.quote(e.getKey())).append(':');
+            appendGauge(sb, e.getValue().get());
+            sep = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, Histogram h) {
+        sb.append("{\"count\":").append(h.getCount())
+                .append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", h.getMean()))
+                .append(",\"p50\":").append(h.getValueAtPercentile(50))
+                .append(",\"p95\":").append(h.getValueAtPercentile(95))
+                .append(",\"p99\":").append(h.getValueAtPercentile(99))
+                .append(",\"max\":").append(h.getMax())
+                .append('}');
+    }
+
+    private static void appendGauge(StringBuilder sb, Object v) {
+        if (v == null || v instanceof Number || v instanceof Boolean) {
+            sb.append(jsonScalar(v));
+            return;
+        }
+        if (v instanceof CharSequence || v instanceof Enum || v instanceof Instant) {
+            sb.append(Json.quote(v.toString()));
+            return;
+        }
+        // public getX()/isX() without parameters, sorted by property name
+        Map<String, Object> fields = new TreeMap<>();
+        for (Method m : v.getClass().getMethods()) {
+            if (m.getParameterCount() != 0 || m.getDeclaringClass() == Object.class) continue;
+            Class<?> type = m.getReturnType();
+            boolean numeric = (type.isPrimitive() && type != void.class && type != boolean.class && type != char.class)
+                    || Number.class.isAssignableFrom(type);
+            boolean bool = type == boolean.class || type == Boolean.class;
+            String name = m.getName();
+            int prefix = name.startsWith("get") && numeric ? 3 : name.startsWith("is") && bool ? 2 : 0;
+            if (prefix == 0 || name.length() == prefix) continue;
+            try {
+                fields.put(Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1), m.invoke(v));
+            } catch (ReflectiveOperationException e) {
+                // not readable from here: leave the field out
+            }
+        }
+        if (fields.isEmpty()) {
+            sb.append(Json.quote(v.toString()));
+            return;
+        }
+        sb.append('{');
+        String sep = "";
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            sb.append(sep).append(Json.quote(f.getKey())).append(':').append(jsonScalar(f.getValue()));
+            sep = ",";
+        }
+        sb.append('}');
+    }
+
+    private static String jsonScalar(Object v) {
+        // JSON has no NaN or Infinity
+        if (v instanceof Double && !Double.isFinite((Double) v)) return "null";
+        if (v instanceof Float && !Float.isFinite((Float) v)) return "null";
+        return String.valueOf(v);
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /** Monotonic event counter. */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() { value.increment(); }
+        public void add(long n) { value.add(n); }
+        public long get() { return value.sum(); }
+        void reset() { value.reset(); }
+    }
+
+    /** Latency timer; durations are recorded in nanoseconds. */
+    public static final class Timer {
+        private final Histogram histogram = new Histogram();
+
+        public void record(long nanos) { histogram.record(nanos); }
+        public long getCount() { return histogram.getCount(); }
+        public Histogram getHistogram() { return histogram; }
+        void reset() { histogram.reset(); }
+    }
+}
@@ -0,0 +1,39 @@
+package util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts are stored as long minor units (cents).
+ * Helpers to convert between user-facing decimal text and cents.
+ */
+public final class Money {
+
+    private Money() { /* utility class */ }
+
+    /**
+     * Parse a decimal amount such as "9.99" or "10" into cents, rounding half-up past two decimals.
+     *
+     * @throws NumberFormatException if the text is not a number or does not fit in a long
+     */
+    public static long parseCents(String amount) {
+        if (amount == null) throw new NumberFormatException("amount is required");
+        BigDecimal value = new BigDecimal(amount.trim()).setScale(2, RoundingMode.HALF_UP);
+        try {
+            return value.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("amount out of range: " + amount);
+        }
+    }
+
+    /**
+     * Format cents as a plain decimal with two fraction digits, e.g. 999 -> "9.99", -5 -> "-0.05".
+     */
+    public static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        // divide before taking the absolute value: Math.abs(Long.MIN_VALUE) is still negative
+        long units = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+        return sign + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,196 @@
+package util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned SQL scripts in db/migration (V1__name.sql, V2__name.sql, ...) at startup.
+ *
+ * Applied versions are recorded in the schema_version table with the script checksum and
+ * how long it took; each pending script runs in its own transaction, in version order.
+ * A PostgreSQL advisory lock keeps two starting processes from migrating at the same time.
+ * A script changed after it was applied stops the migration: add a new version instead.
+ *
+ * The scripts are idempotent, so a database set up by hand before this runner existed
+ * simply gets every version re-applied and recorded once.
+ *
+ * Settings (system properties):
+ *  - db.migrate     false to skip migrations (default true)
+ *  - db.migrations  directory of the scripts (default db/migration, relative to the working directory)
+ */
+public final class SchemaMigrator {
+
+    // --- Edit these values if needed ---
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("db.migrate", "true"));
+    private static final String MIGRATIONS_DIR = System.getProperty("db.migrations", "db/migration");
+    private static final long ADVISORY_LOCK_KEY = 0x5375_6273_4d69_67L; // arbitrary, shared by all instances
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private SchemaMigrator() { /* utility class */ }
+
+    /**
+     * Apply pending migrations (unless disabled with -Ddb.migrate=false) and print one line per applied script.
+     *
+     * @return the scripts applied by this call, empty when the schema is up to date
+     */
+    public static List<Step> migrate() throws Exception {
+        if (!ENABLED) return new ArrayList<>();
+        Map<Integer, Script> scripts = loadScripts(Paths.get(MIGRATIONS_DIR));
+        List<Step> applied = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")");
+            }
+            try {
+                createVersionTable(conn);
+                Map<Integer, Long> checksums = appliedChecksums(conn);
+                for (Script script : scripts.values()) {
+                    Long recorded = checksums.get(script.version);
+                    if (recorded == null) {
+                        Step step = apply(conn, script);
+                        System.out.println("Migration " + step);
+                        applied.add(step);
+                    } else if (recorded != script.checksum) {
+                        throw new DatabaseException("Migration " + script.fileName + " was modified after it was applied"
+                                + " (checksum " + recorded + " recorded, " + script.checksum + " on disk)");
+                    }
+                }
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+                }
+            }
+        }
+        return applied;
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + " version      INTEGER PRIMARY KEY,"
+                    + " description  VARCHAR(200) NOT NULL,"
+                    + " script       VARCHAR(255) NOT NULL,"
+                    + " checksum     BIGINT NOT NULL,"
+                    + " installed_on TIMESTAMP NOT NULL DEFAULT now(),"
+                    + " execution_ms BIGINT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> checksums = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) checksums.put(rs.getInt(1), rs.getLong(2));
+        }
+        return checksums;
+    }
+
+    private static Step apply(Connection conn, Script script) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        long start = System.nanoTime();
+        try {
+            try (Statement st = conn.createStatement()) {
+                st.execute(script.sql);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO schema_version(version, description, script, checksum, execution_ms) VALUES (?,?,?,?,?)")) {
+                ps.setInt(1, script.version);
+                ps.setString(2, script.description);
+                ps.setString(3, script.fileName);
+                ps.setLong(4, script.checksum);
+                ps.setLong(5, millis);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            Metrics.timer("db.migration").record(System.nanoTime() - start);
+            return new Step(script.version, script.description, millis);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new DatabaseException("Migration " + script.fileName + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Map<Integer, Script> loadScripts(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            throw new DatabaseException("Migration directory not found: " + dir.toAbsolutePath()
+                    + " (run from the project root or set -Ddb.migrations)");
+        }
+        Map<Integer, Script> scripts = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher m = SCRIPT_NAME.matcher(file.getFileName().toString());
+                if (!m.matches()) continue;
+                Script script = new Script(file, Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '));
+                Script clash = scripts.put(script.version, script);
+                if (clash != null) {
+                    throw new DatabaseException("Duplicate migration version " + script.version + ": "
+                            + clash.fileName + " and " + script.fileName);
+                }
+            }
+        }
+        return scripts;
+    }
+
+    private static final class Script {
+        final int version;
+        final String description;
+        final String fileName;
+        final String sql;
+        final long checksum;
+
+        Script(Path file, int version, String description) throws IOException {
+            this.version = version;
+            this.description = description;
+            this.fileName = file.getFileName().toString();
+            // line endings are normalized so a checkout with CRLF has the same checksum
+            this.sql = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            CRC32 crc = new CRC32();
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+        }
+    }
+
+    /** One applied migration. */
+    public static final class Step {
+        private final int version;
+        private final String description;
+        private final long executionMillis;
+
+        Step(int version, String description, long executionMillis) {
+            this.version = version;
+            this.description = description;
+            this.executionMillis = executionMillis;
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+        public long getExecutionMillis() { return executionMillis; }
+
+        @Override
+        public String toString() {
+            return "V" + version + " " + description + " applied in " + executionMillis + " ms";
+        }
+    }
+}
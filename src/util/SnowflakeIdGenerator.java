@@ -0,0 +1,53 @@
+package util;
+
+import java.time.Instant;
+
+/**
+ * Snowflake-style 64-bit ids: 41 bits of milliseconds since EPOCH (about 69 years), a 10-bit node
+ * number and a 12-bit per-millisecond sequence. Ids are positive, increase with time and are unique
+ * as long as every running process uses its own node number.
+ *
+ * {@link #nextId()} returns the decimal text form. These are not UUIDs, so they are only accepted
+ * by the in-memory store, which keeps them as one long.
+ */
+public final class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(int node) {
+        if (node < 0 || node >= 1 << NODE_BITS) throw new IllegalArgumentException("node must be 0-1023: " + node);
+        this.node = node;
+    }
+
+    @Override
+    public String nextId() {
+        return Long.toString(nextLong());
+    }
+
+    @Override
+    public boolean producesUuids() {
+        return false;
+    }
+
+    public synchronized long nextLong() {
+        long now = Math.max(System.currentTimeMillis(), lastMillis); // never go back with the clock
+        if (now == lastMillis) {
+            if (++sequence > MAX_SEQUENCE) {
+                // sequence exhausted: wait for the next millisecond
+                while ((now = System.currentTimeMillis()) <= lastMillis) Thread.onSpinWait();
+                sequence = 0;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
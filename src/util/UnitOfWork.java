@@ -0,0 +1,157 @@
+package util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a block of DAO calls on one connection inside one transaction.
+ *
+ * While a unit of work is active on the current thread, {@link DBConnection#getConnection()}
+ * hands out that same connection wrapped so that close(), commit(), rollback() and
+ * setAutoCommit() made by the DAOs do not end the transaction. The DAO call sites stay
+ * unchanged; the unit of work commits once at the end, or rolls back if the block throws
+ * or any participant asked for a rollback. Nested units of work join the outer one.
+ * The connection is only borrowed when the first DAO asks for one, so a unit of work
+ * around non-JDBC DAOs or cache hits costs nothing.
+ *
+ * Usage:
+ *   UnitOfWork.call(() -> { dao.create(s); otherDao.createAllIfAbsent(list); return s; });
+ */
+public final class UnitOfWork {
+
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    private UnitOfWork() { /* utility class */ }
+
+    public static <T> T call(Work<T> work) throws Exception {
+        if (CURRENT.get() != null) return work.run();
+
+        Context ctx = new Context();
+        CURRENT.set(ctx);
+        try {
+            T result;
+            try {
+                result = work.run();
+            } catch (Exception | Error e) {
+                if (ctx.connection != null) {
+                    // a failing rollback must not hide why the work failed
+                    try {
+                        rollback(ctx.connection);
+                    } catch (Exception rollbackFailure) {
+                        e.addSuppressed(rollbackFailure);
+                    }
+                }
+                throw e;
+            } finally {
+                CURRENT.remove();
+            }
+            if (ctx.connection == null) return result;
+            if (ctx.rollbackOnly) {
+                rollback(ctx.connection);
+                throw new DatabaseException("Unit of work was rolled back by a participant");
+            }
+            ctx.connection.commit();
+            Metrics.counter("db.unitOfWork.commits").increment();
+            return result;
+        } finally {
+            try {
+                if (ctx.connection != null) ctx.connection.close();
+            } finally {
+                for (Runnable hook : ctx.afterCompletion) hook.run();
+            }
+        }
+    }
+
+    /**
+     * Run the hook once the active unit of work has committed or rolled back, or right away when
+     * none is active. Caches use this to drop entries only after a write is visible to other
+     * connections.
+     */
+    public static void afterCompletion(Runnable hook) {
+        Context ctx = CURRENT.get();
+        if (ctx == null) hook.run();
+        else ctx.afterCompletion.add(hook);
+    }
+
+    public static void run(Action action) throws Exception {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static void rollback(Connection conn) throws SQLException {
+        conn.rollback();
+        Metrics.counter("db.unitOfWork.rollbacks").increment();
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Connection of the active unit of work wrapped for a participant.
+     * The first call borrows the connection and starts the transaction.
+     */
+    static Connection participantConnection() throws Exception {
+        Context ctx = CURRENT.get();
+        if (ctx.connection == null) {
+            Connection conn = DBConnection.borrow();
+            try {
+                conn.setAutoCommit(false);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            ctx.connection = conn;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                        case "commit":
+                        case "setAutoCommit":
+                            return null;
+                        case "rollback":
+                            if (args == null) {
+                                ctx.rollbackOnly = true;
+                                return null;
+                            }
+                            break; // rollback(Savepoint) stays scoped to the participant
+                        case "getAutoCommit":
+                            return false;
+                        case "isClosed":
+                            return ctx.connection.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(ctx.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static final class Context {
+        Connection connection;
+        boolean rollbackOnly;
+        final List<Runnable> afterCompletion = new ArrayList<>();
+    }
+}
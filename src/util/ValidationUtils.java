@@ -17,17 +17,19 @@ public final class ValidationUtils {
     /**
      * Validate a Subscription object.
      * - not null
+     * - id accepted by {@link Ids#isValid}
      * - serviceName not empty
-     * - price >= 0
+     * - priceCents >= 0
      * - startDate not null
      * - if endDate present it must not be before startDate
      */
     public static void validateSubscription(Subscription s) {
         Objects.requireNonNull(s, "subscription must not be null");
+        requireValidId(s.getId(), "id");
         if (s.getServiceName() == null || s.getServiceName().trim().isEmpty()) {
             throw new IllegalArgumentException("serviceName is required");
         }
-        if (s.getPrice() < 0) {
+        if (s.getPriceCents() < 0) {
             throw new IllegalArgumentException("price must be >= 0");
         }
         if (s.getStartDate() == null) {
@@ -41,7 +43,7 @@ public final class ValidationUtils {
     /**
      * Validate a Payment object.
      * - not null
-     * - subscriptionId present
+     * - id and subscriptionId accepted by {@link Ids#isValid}
      * - dueDate present
      * - status present (Pstatus)
      * - if paymentDate present it must not be before dueDate (optional business rule)
@@ -51,6 +53,8 @@ public final class ValidationUtils {
         if (p.getSubscriptionId() == null || p.getSubscriptionId().trim().isEmpty()) {
             throw new IllegalArgumentException("subscriptionId is required for payment");
         }
+        requireValidId(p.getId(), "id");
+        requireValidId(p.getSubscriptionId(), "subscriptionId");
         if (p.getDueDate() == null) {
             throw new IllegalArgumentException("dueDate is required");
         }
@@ -66,4 +70,8 @@ public final class ValidationUtils {
             throw new IllegalArgumentException("payment with paymentDate must have status PAID");
         }
     }
-}
\ No newline at end of file
+
+    private static void requireValidId(String id, String field) {
+        if (!Ids.isValid(id)) throw new IllegalArgumentException(field + " must be a UUID: " + id);
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors backed by virtual threads on Java 21+, looked up by reflection so the code still
+ * compiles and runs on older JDKs, where a fixed pool of daemon platform threads is used instead.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookup();
+
+    private VirtualThreads() { /* utility class */ }
+
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * One new virtual thread per task, or, without virtual threads, fallbackThreads platform threads
+     * named namePrefix-N.
+     */
+    public static ExecutorService newExecutor(String namePrefix, int fallbackThreads) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new AppException("Could not create a virtual thread executor", e);
+            }
+        }
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(fallbackThreads, task -> {
+            Thread t = new Thread(task, namePrefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}